@@ -0,0 +1,92 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.*;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single threaded read throughput of one chunk per operation, MB/s per core is the score times the chunk size in MB.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ChunkSourceBenchmark {
+
+    private static final int MEGA_BYTE = 1024 * 1024;
+
+    @Param({"4", "16", "64", "150"})
+    public int chunkMegaBytes;
+
+    private File file;
+    private long chunkSize;
+
+    @Setup(Level.Trial)
+    public void createFile() throws IOException {
+        chunkSize = (long) chunkMegaBytes * MEGA_BYTE;
+        file = File.createTempFile("chunk-benchmark", ".bin");
+        byte[] block = new byte[MEGA_BYTE];
+        new Random(42).nextBytes(block);
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            for (int i = 0; i < chunkMegaBytes; i++) {
+                out.write(block);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() {
+        file.delete();
+    }
+
+    @Benchmark
+    public long singleByteStream() throws IOException {
+        InputStream content = new FileInputStream(file);
+        try {
+            InputStream chunk = new ChunkedInputStream(new BufferedInputStream(content), chunkSize);
+            long count = 0;
+            while (chunk.read() != -1) {
+                count++;
+            }
+            return count;
+        } finally {
+            content.close();
+        }
+    }
+
+    @Benchmark
+    public long bulkStream() throws IOException {
+        ChunkSource source = new StreamChunkSource(new FileInputStream(file), chunkSize);
+        try {
+            return IOUtils.copyLarge(source.nextChunk(chunkSize), NullOutputStream.NULL_OUTPUT_STREAM);
+        } finally {
+            source.close();
+        }
+    }
+
+    @Benchmark
+    public long mappedChunk() throws IOException {
+        ChunkSource source = new MappedChunkSource(file);
+        try {
+            return IOUtils.copyLarge(source.nextChunk(chunkSize), NullOutputStream.NULL_OUTPUT_STREAM);
+        } finally {
+            source.close();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ChunkSourceBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In memory copy throughput of a {@link ChunkedInputStream}, without any disk access in the measurement.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ChunkedInputStreamBenchmark {
+
+    private static final int MEGA_BYTE = 1024 * 1024;
+
+    @Param({"4", "16"})
+    public int chunkMegaBytes;
+
+    private byte[] content;
+
+    @Setup(Level.Trial)
+    public void createContent() {
+        content = new byte[chunkMegaBytes * MEGA_BYTE];
+        new Random(42).nextBytes(content);
+    }
+
+    @Benchmark
+    public long bulkCopy() throws IOException {
+        InputStream chunk = new ChunkedInputStream(new ByteArrayInputStream(content), content.length);
+        return IOUtils.copyLarge(chunk, NullOutputStream.NULL_OUTPUT_STREAM);
+    }
+
+    @Benchmark
+    public long singleByteCopy() throws IOException {
+        InputStream chunk = new ChunkedInputStream(new ByteArrayInputStream(content), content.length);
+        long count = 0;
+        while (chunk.read() != -1) {
+            count++;
+        }
+        return count;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ChunkedInputStreamBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import com.google.gson.Gson;
+import org.jenkinsci.plugins.publishoverdropbox.domain.model.FolderContent;
+import org.jenkinsci.plugins.publishoverdropbox.domain.model.Metadata;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deserialization of one list_folder page, bound to the Gson model and read entry by entry.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FolderContentBenchmark {
+
+    private static final int ENTRIES = 2000;
+
+    private Gson gson;
+    private String page;
+
+    @Setup(Level.Trial)
+    public void createPage() {
+        gson = DropboxV2.createGson();
+        StringBuilder json = new StringBuilder("{\"entries\": [");
+        for (int i = 0; i < ENTRIES; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            // Every tenth entry a folder, like a typical artifact tree
+            if (i % 10 == 0) {
+                json.append("{\".tag\": \"folder\", \"name\": \"build-").append(i)
+                        .append("\", \"id\": \"id:a4ayc_80_OEAAAAAAAA").append(i)
+                        .append("\", \"path_lower\": \"/jenkins/build-").append(i)
+                        .append("\", \"path_display\": \"/Jenkins/build-").append(i).append("\"}");
+            } else {
+                json.append("{\".tag\": \"file\", \"name\": \"artifact-").append(i)
+                        .append(".jar\", \"id\": \"id:a4ayc_80_OEAAAAAAAA").append(i)
+                        .append("\", \"client_modified\": \"2017-05-12T15:50:38Z\", \"server_modified\": \"2017-05-12T15:50:38Z\"")
+                        .append(", \"rev\": \"a1c10ce0dd78\", \"size\": ").append(1024L * i)
+                        .append(", \"path_lower\": \"/jenkins/build-").append(i - i % 10).append("/artifact-").append(i)
+                        .append(".jar\", \"path_display\": \"/Jenkins/build-").append(i - i % 10).append("/artifact-").append(i)
+                        .append(".jar\", \"content_hash\": \"e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855\"}");
+            }
+        }
+        json.append("], \"cursor\": \"ZtkX9_EHj3x7PMkVuFIhwKYXEpwpLwyxp9vMKomUhllil9q7eWiAu\", \"has_more\": true}");
+        page = json.toString();
+    }
+
+    @Benchmark
+    public FolderContent modelBinding() {
+        return gson.fromJson(page, FolderContent.class);
+    }
+
+    @Benchmark
+    public int streamingReader() throws IOException {
+        final int[] count = new int[1];
+        new ListFolderReader(new MetadataCallback() {
+            @Override
+            public boolean onEntry(Metadata entry) {
+                count[0]++;
+                return true;
+            }
+        }).read(gson, new StringReader(page));
+        return count[0];
+    }
+
+    @Benchmark
+    public Gson createGson() {
+        return DropboxV2.createGson();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FolderContentBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import com.google.gson.Gson;
+import org.jenkinsci.plugins.publishoverdropbox.domain.model.ErrorResponse;
+import org.jenkinsci.plugins.publishoverdropbox.domain.model.FolderContent;
+import org.jenkinsci.plugins.publishoverdropbox.domain.model.requests.ListFolderRequest;
+import org.jenkinsci.plugins.publishoverdropbox.domain.model.requests.SessionAppend;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction of the requests DropboxV2 sends, up to the point the transport takes over.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JsonObjectRequestBenchmark {
+
+    private static final String ACCESS_TOKEN = "benchmark-access-token";
+
+    private Gson gson;
+    private URL listUrl;
+    private URL appendUrl;
+    private byte[] chunk;
+
+    @Setup(Level.Trial)
+    public void createGson() throws IOException {
+        gson = DropboxV2.createGson();
+        listUrl = new URL("https://api.dropboxapi.com/2/files/list_folder");
+        appendUrl = new URL("https://content.dropboxapi.com/2/files/upload_session/append_v2");
+        chunk = new byte[4096];
+    }
+
+    @Benchmark
+    public JsonObjectRequest<FolderContent> rpcRequest() {
+        ListFolderRequest requestContent = new ListFolderRequest();
+        requestContent.setPath("/jenkins/builds");
+        requestContent.setRecursive(true);
+        return new JsonObjectRequest.Builder<FolderContent>()
+                .url(listUrl)
+                .gson(gson)
+                .method(JsonObjectRequest.Method.POST)
+                .upload(gson.toJson(requestContent), "application/json")
+                .responseClass(FolderContent.class)
+                .responseErrorClass(ErrorResponse.class)
+                .sign(ACCESS_TOKEN)
+                .timeout(300000)
+                .build();
+    }
+
+    @Benchmark
+    public JsonObjectRequest<ErrorResponse> uploadRequest() {
+        SessionAppend appendContent = new SessionAppend();
+        appendContent.cursor.setSessionId("1234faaf0678bcde");
+        appendContent.cursor.setOffset(4L * 1024 * 1024);
+        return new JsonObjectRequest.Builder<ErrorResponse>()
+                .url(appendUrl)
+                .gson(gson)
+                .method(JsonObjectRequest.Method.POST)
+                .upload(new ByteArrayInputStream(chunk), "application/octet-stream")
+                .addHeader("Dropbox-API-Arg", gson.toJson(appendContent))
+                .addHeader("Content-Length", Long.toString(chunk.length))
+                .responseClass(ErrorResponse.class)
+                .responseErrorClass(ErrorResponse.class)
+                .sign(ACCESS_TOKEN)
+                .timeout(300000)
+                .build();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JsonObjectRequestBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.publishoverdropbox.domain.transport;
+
+import org.apache.commons.io.IOUtils;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrent uploads through the pooled HTTP/1.1 transport and the HTTP/2 transport, against a local server that
+ * speaks both. The HTTP/2 transport needs Java 11 or newer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Threads(16)
+@Fork(1)
+public class TransportBenchmark {
+
+    private static final int CONCURRENCY = 16;
+    private static final byte[] PAYLOAD = new byte[16 * 1024];
+
+    @Param({"pool", "http2"})
+    public String protocol;
+
+    private Server server;
+    private URL url;
+    private HttpTransport transport;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        server = new Server();
+        HttpConfiguration configuration = new HttpConfiguration();
+        ServerConnector connector = new ServerConnector(server, new HttpConnectionFactory(configuration), new HTTP2CServerConnectionFactory(configuration));
+        connector.setHost("127.0.0.1");
+        server.addConnector(connector);
+        server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException {
+                IOUtils.toByteArray(request.getInputStream());
+                response.setStatus(200);
+                response.setContentType("application/json");
+                response.getOutputStream().write("{}".getBytes("UTF-8"));
+                baseRequest.setHandled(true);
+            }
+        });
+        server.start();
+        url = new URL("http://127.0.0.1:" + connector.getLocalPort() + "/2/files/upload_session/append_v2");
+        if ("http2".equals(protocol)) {
+            if (!Http2Transport.isSupported()) {
+                throw new IllegalStateException("The HTTP/2 transport needs Java 11 or newer");
+            }
+            transport = new Http2Transport();
+            // The client upgrades a cleartext connection on a request without a body
+            TransportRequest upgrade = new TransportRequest(url, "POST");
+            transport.execute(upgrade).close();
+        } else {
+            transport = new PooledTransport(CONCURRENCY, 60);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws Exception {
+        if (transport instanceof PooledTransport) {
+            ((PooledTransport) transport).shutdown();
+        }
+        server.stop();
+    }
+
+    @Benchmark
+    public int upload() throws IOException {
+        TransportRequest request = new TransportRequest(url, "POST");
+        request.addHeader("Content-Length", Integer.toString(PAYLOAD.length));
+        request.setBody(new ByteArrayInputStream(PAYLOAD), "application/octet-stream");
+        request.setTimeout(30000);
+        TransportResponse response = transport.execute(request);
+        try {
+            IOUtils.toByteArray(response.getBody());
+            return response.getCode();
+        } finally {
+            response.close();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TransportBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -58,6 +58,30 @@ public class DropboxHostConfigurationDescriptor extends Descriptor<DropboxHostCo
         return DropboxHostConfiguration.DEFAULT_TIMEOUT;
     }
 
+    public int getDefaultChunkWorkers() {
+        return DropboxHostConfiguration.DEFAULT_CHUNK_WORKERS;
+    }
+
+    public int getDefaultParallelism() {
+        return DropboxHostConfiguration.DEFAULT_PARALLELISM;
+    }
+
+    public int getDefaultMaxConnections() {
+        return DropboxHostConfiguration.DEFAULT_MAX_CONNECTIONS;
+    }
+
+    public int getDefaultIdleTimeout() {
+        return DropboxHostConfiguration.DEFAULT_IDLE_TIMEOUT;
+    }
+
+    public int getDefaultRequestsPerSecond() {
+        return DropboxHostConfiguration.DEFAULT_REQUESTS_PER_SECOND;
+    }
+
+    public int getDefaultUploadRate() {
+        return DropboxHostConfiguration.DEFAULT_UPLOAD_RATE;
+    }
+
     public FormValidation doCheckName(@QueryParameter final String value) {
         return BPValidators.validateName(value);
     }
@@ -66,6 +90,30 @@ public class DropboxHostConfigurationDescriptor extends Descriptor<DropboxHostCo
         return FormValidation.validateNonNegativeInteger(value);
     }
 
+    public FormValidation doCheckChunkWorkers(@QueryParameter final String value) {
+        return FormValidation.validatePositiveInteger(value);
+    }
+
+    public FormValidation doCheckParallelism(@QueryParameter final String value) {
+        return FormValidation.validatePositiveInteger(value);
+    }
+
+    public FormValidation doCheckMaxConnections(@QueryParameter final String value) {
+        return FormValidation.validatePositiveInteger(value);
+    }
+
+    public FormValidation doCheckIdleTimeout(@QueryParameter final String value) {
+        return FormValidation.validatePositiveInteger(value);
+    }
+
+    public FormValidation doCheckRequestsPerSecond(@QueryParameter final String value) {
+        return FormValidation.validateNonNegativeInteger(value);
+    }
+
+    public FormValidation doCheckUploadRate(@QueryParameter final String value) {
+        return FormValidation.validateNonNegativeInteger(value);
+    }
+
     public FormValidation doCheckRemoteRootDir(@QueryParameter String remoteRootDir) {
         if (remoteRootDir.matches("/.*")) return FormValidation.ok();
         else return FormValidation.error(Messages.hostconfig_formvalidation_root());
@@ -28,6 +28,8 @@ import hudson.Extension;
 import hudson.model.Descriptor;
 import hudson.util.FormValidation;
 import jenkins.model.Jenkins;
+import org.apache.commons.lang.StringUtils;
+import org.jenkinsci.plugins.publishoverdropbox.domain.ArchiveWriter;
 import org.jenkinsci.plugins.publishoverdropbox.impl.DropboxPublisherPlugin;
 import org.jenkinsci.plugins.publishoverdropbox.impl.DropboxTransfer;
 import org.jenkinsci.plugins.publishoverdropbox.impl.Messages;
@@ -53,6 +55,11 @@ public class DropboxTransferDescriptor extends Descriptor<DropboxTransfer> {
         return FormValidation.validateRequired(value);
     }
 
+    public FormValidation doCheckArchiveName(@QueryParameter final String value) {
+        if (StringUtils.isBlank(value) || ArchiveWriter.Format.forName(value) != null) return FormValidation.ok();
+        else return FormValidation.error(Messages.transfer_formvalidation_archiveName());
+    }
+
     public boolean canUseExcludes() {
         return DropboxTransfer.canUseExcludes();
     }
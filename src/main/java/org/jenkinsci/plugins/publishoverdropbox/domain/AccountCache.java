@@ -0,0 +1,104 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import org.jenkinsci.plugins.publishoverdropbox.domain.model.AccountInfo;
+
+import javax.annotation.Nonnull;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JVM wide cache of the accounts of recently connected access tokens. A client with a cached token connects without
+ * retrieving the account, an entry expires after a while or as soon as Dropbox rejects the token.
+ */
+public class AccountCache {
+
+    static final long TIME_TO_LIVE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final AccountCache instance = new AccountCache(TIME_TO_LIVE_MILLIS);
+
+    private final long timeToLiveMillis;
+    private final Map<String, Entry> accounts = new HashMap<String, Entry>();
+
+    AccountCache(long timeToLiveMillis) {
+        this.timeToLiveMillis = timeToLiveMillis;
+    }
+
+    public static AccountCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * @return the account of the token, or null when it is not cached or expired
+     */
+    public synchronized AccountInfo get(@Nonnull String accessToken) {
+        Entry entry = accounts.get(accessToken);
+        if (entry == null) {
+            return null;
+        }
+        if (currentTimeMillis() - entry.cached >= timeToLiveMillis) {
+            accounts.remove(accessToken);
+            return null;
+        }
+        return entry.account;
+    }
+
+    /**
+     * Cache the account of a token, accounts that are disabled are not cached.
+     */
+    public synchronized void put(@Nonnull String accessToken, @Nonnull AccountInfo account) {
+        if (!account.isDisabled()) {
+            accounts.put(accessToken, new Entry(account, currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Forget the account of a token, the next client with the token retrieves the account again.
+     */
+    public synchronized void invalidate(@Nonnull String accessToken) {
+        accounts.remove(accessToken);
+    }
+
+    synchronized void clear() {
+        accounts.clear();
+    }
+
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private static class Entry {
+        private final AccountInfo account;
+        private final long cached;
+
+        Entry(AccountInfo account, long cached) {
+            this.account = account;
+            this.cached = cached;
+        }
+    }
+}
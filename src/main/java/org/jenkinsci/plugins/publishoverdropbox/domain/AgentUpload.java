@@ -0,0 +1,109 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import hudson.Util;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+import org.jenkinsci.plugins.publishoverdropbox.domain.transport.TransportSettings;
+import org.jenkinsci.plugins.publishoverdropbox.domain.transport.UrlConnectionTransport;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Uploads a file from the node that holds it straight to Dropbox. Invoked through {@link hudson.FilePath#act} only
+ * the access token, the upload settings and the result cross the remoting channel, never the content.
+ * <p>
+ * Small files of a batched publish are uploaded into a closed session, the controller commits them with the batch.
+ * The agent opens the transport of the host configuration and limits its requests to the rates of the token, both
+ * shared by the uploads in the agent JVM. Chunk sizes are learned per agent, its connection may differ from the
+ * controller's.
+ */
+public class AgentUpload extends MasterToSlaveFileCallable<String> {
+
+    private static final long serialVersionUID = 1L;
+    private static final String CONTROLLER_RATES = "controller";
+    private final String accessToken;
+    private final String apiUrl;
+    private final String contentUrl;
+    private final int timeout;
+    private final int chunkWorkers;
+    private final long chunkSize;
+    private final String path;
+    private final boolean staged;
+    private final TransportSettings transportSettings;
+    private final double requestsPerSecond;
+    private final double bytesPerSecond;
+
+    AgentUpload(String accessToken, String apiUrl, String contentUrl, int timeout, int chunkWorkers, long chunkSize,
+                String path, boolean staged, TransportSettings transportSettings, double requestsPerSecond, double bytesPerSecond) {
+        this.accessToken = accessToken;
+        this.apiUrl = apiUrl;
+        this.contentUrl = contentUrl;
+        this.timeout = timeout;
+        this.chunkWorkers = chunkWorkers;
+        this.chunkSize = chunkSize;
+        this.path = path;
+        this.staged = staged;
+        this.transportSettings = transportSettings;
+        this.requestsPerSecond = requestsPerSecond;
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * @return id of the closed upload session to commit, or null when the file is stored already
+     */
+    @Override
+    public String invoke(File file, VirtualChannel channel) throws IOException, InterruptedException {
+        DropboxV2 dropbox;
+        if (transportSettings != null) {
+            dropbox = new DropboxV2(accessToken, transportSettings.getTransport());
+            dropbox.setChunkSizeController(ChunkSizeController.forConfiguration(transportSettings.getConfigurationName()));
+        } else {
+            dropbox = new DropboxV2(accessToken, UrlConnectionTransport.getInstance());
+        }
+        if (requestsPerSecond > 0 || bytesPerSecond > 0) {
+            RateLimiter limiter = RateLimiter.forToken(Util.getDigestOf(accessToken));
+            limiter.setRates(CONTROLLER_RATES, requestsPerSecond, bytesPerSecond);
+            dropbox.setRateLimiter(limiter);
+        }
+        dropbox.setServerUrls(apiUrl, contentUrl);
+        dropbox.setTimeout(timeout);
+        dropbox.setChunkWorkers(chunkWorkers);
+        dropbox.chunkSize = chunkSize;
+        ChunkSource source = MappedChunkSource.open(file);
+        try {
+            long length = source.getLength();
+            if (staged && length <= chunkSize) {
+                return dropbox.uploadClosedSession(path, source.nextChunk(length), length);
+            }
+            dropbox.storeFile(path, source);
+            return null;
+        } finally {
+            source.close();
+        }
+    }
+}
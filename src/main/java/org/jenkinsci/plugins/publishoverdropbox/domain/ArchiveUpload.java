@@ -0,0 +1,194 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.jenkinsci.plugins.publishoverdropbox.impl.Messages;
+
+import javax.annotation.Nonnull;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Packs files into one archive that is uploaded while it is written. The archive is written on the calling thread
+ * and streamed through a pipe to an upload on its own thread, it is never stored on disk.
+ */
+public class ArchiveUpload {
+
+    private static final int PIPE_SIZE = 1024 * 1024;
+
+    private final String path;
+    private final PipedOutputStream pipe;
+    private final CountingOutputStream archiveCounter;
+    private final ArchiveWriter writer;
+    private final ExecutorService uploader;
+    private final Future<Void> upload;
+    private volatile boolean aborted;
+
+    /**
+     * Start the upload, it completes when {@link #finish()} is called.
+     *
+     * @param dropbox connection to store the archive with
+     * @param path    name of the archive in the working folder, or an absolute path
+     * @param format  format of the archive
+     */
+    public ArchiveUpload(@Nonnull final DropboxAdapter dropbox, @Nonnull final String path, @Nonnull ArchiveWriter.Format format) throws IOException {
+        this.path = path;
+        PipedInputStream pipeInput = new PipedInputStream(PIPE_SIZE);
+        pipe = new PipedOutputStream(pipeInput);
+        archiveCounter = new CountingOutputStream(pipe);
+        writer = new ArchiveWriter(format, archiveCounter);
+        // An aborted archive ends the stream as well, the upload fails at the end instead of committing it
+        final InputStream archive = new FilterInputStream(pipeInput) {
+            @Override
+            public int read() throws IOException {
+                return checkEnd(super.read());
+            }
+
+            @Override
+            public int read(@Nonnull byte[] bytes, int offset, int length) throws IOException {
+                return checkEnd(super.read(bytes, offset, length));
+            }
+        };
+        uploader = Executors.newSingleThreadExecutor();
+        upload = uploader.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                try {
+                    dropbox.storeStream(path, archive);
+                } finally {
+                    archive.close();
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Add a file to the archive, the archive is aborted when the file can not be added.
+     *
+     * @param name         path of the entry in the archive, separated by '/'
+     * @param length       size of the file in bytes
+     * @param lastModified modification time in milliseconds since the epoch
+     * @param content      data of the file, not closed by this call
+     */
+    public void add(@Nonnull String name, long length, long lastModified, @Nonnull InputStream content) throws IOException {
+        try {
+            writer.addEntry(name, length, lastModified, content);
+        } catch (IOException e) {
+            abort();
+            throw uploadFailure(e);
+        }
+    }
+
+    /**
+     * Complete the archive and wait until it is stored.
+     *
+     * @return the entries of the stored archive, in order
+     */
+    public List<ArchiveWriter.Entry> finish() throws IOException {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            abort();
+            throw uploadFailure(e);
+        }
+        try {
+            upload.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort();
+            throw new InterruptedIOException(Messages.exception_archive_aborted(path));
+        } catch (ExecutionException e) {
+            throw asIOException(e.getCause());
+        } finally {
+            uploader.shutdown();
+        }
+        return writer.getManifest();
+    }
+
+    /**
+     * Stop the upload without storing the archive.
+     */
+    public void abort() {
+        aborted = true;
+        IOUtils.closeQuietly(writer);
+        IOUtils.closeQuietly(pipe);
+        uploader.shutdown();
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return number of archive bytes written so far
+     */
+    public long getArchiveSize() {
+        return archiveCounter.getByteCount();
+    }
+
+    private int checkEnd(int read) throws IOException {
+        if (read == -1 && aborted) {
+            throw new IOException(Messages.exception_archive_aborted(path));
+        }
+        return read;
+    }
+
+    /**
+     * A failed upload closes the pipe, the failure of the upload explains more than the closed pipe.
+     */
+    private IOException uploadFailure(IOException e) {
+        if (upload.isDone()) {
+            try {
+                upload.get();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ee) {
+                return asIOException(ee.getCause());
+            }
+        }
+        return e;
+    }
+
+    private IOException asIOException(Throwable cause) {
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        return new IOException(Messages.exception_archive_aborted(path), cause);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.io.IOUtils;
+
+import javax.annotation.Nonnull;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes files as the entries of a zip or tar.gz archive to a stream and keeps a manifest of the written entries.
+ * A tar.gz is deflated on all cores, a zip deflates each entry on the writing thread.
+ */
+public class ArchiveWriter implements Closeable {
+
+    public enum Format {
+        ZIP, TAR_GZ;
+
+        /**
+         * @param name file name of the archive
+         * @return format that matches the extension of the name, or null when the extension is not supported
+         */
+        public static Format forName(@Nonnull String name) {
+            String lower = name.trim().toLowerCase(Locale.ENGLISH);
+            if (lower.endsWith(".zip")) {
+                return ZIP;
+            }
+            if (lower.endsWith(".tar.gz") || lower.endsWith(".tgz")) {
+                return TAR_GZ;
+            }
+            return null;
+        }
+    }
+
+    private final ZipOutputStream zip;
+    private final TarArchiveOutputStream tar;
+    private final ParallelGzipOutputStream gzip;
+    private final List<Entry> manifest = new ArrayList<Entry>();
+
+    public ArchiveWriter(@Nonnull Format format, @Nonnull OutputStream out) {
+        if (format == Format.ZIP) {
+            zip = new ZipOutputStream(out);
+            tar = null;
+            gzip = null;
+        } else {
+            zip = null;
+            gzip = new ParallelGzipOutputStream(out);
+            tar = new TarArchiveOutputStream(gzip);
+            tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            tar.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+        }
+    }
+
+    /**
+     * @param name         path of the entry in the archive, separated by '/'
+     * @param length       size of the content in bytes
+     * @param lastModified modification time in milliseconds since the epoch
+     * @param content      data of the entry, read up to the given length and not closed by this call
+     */
+    public void addEntry(@Nonnull String name, long length, long lastModified, @Nonnull InputStream content) throws IOException {
+        long size;
+        if (zip != null) {
+            ZipEntry entry = new ZipEntry(name);
+            entry.setTime(lastModified);
+            zip.putNextEntry(entry);
+            size = IOUtils.copyLarge(content, zip, 0, length);
+            zip.closeEntry();
+        } else {
+            TarArchiveEntry entry = new TarArchiveEntry(name);
+            entry.setSize(length);
+            entry.setModTime(new Date(lastModified));
+            tar.putArchiveEntry(entry);
+            // The entry header announced the length, a shorter stream fails when the entry is closed
+            size = IOUtils.copyLarge(content, tar, 0, length);
+            tar.closeArchiveEntry();
+        }
+        manifest.add(new Entry(name, size));
+    }
+
+    /**
+     * @return the entries written so far, in order
+     */
+    public List<Entry> getManifest() {
+        return Collections.unmodifiableList(manifest);
+    }
+
+    /**
+     * Write the end of the archive and close the stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if (zip != null) {
+            zip.close();
+        } else {
+            try {
+                tar.close();
+            } finally {
+                // Stops the compression threads when the archive could not be completed
+                gzip.close();
+            }
+        }
+    }
+
+    public static class Entry {
+        private final String name;
+        private final long size;
+
+        Entry(String name, long size) {
+            this.name = name;
+            this.size = size;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getSize() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import javax.annotation.Nonnull;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Learns the chunk size of upload sessions from the measured throughput and error rate of the chunk requests. Each
+ * chunk aims to take {@link #TARGET_NANOS}, so fast connections send fewer larger requests and slow or failing
+ * connections lose less work per failed request. Sizes stay a multiple of 4 MB and below the 150 MB request limit.
+ */
+public class ChunkSizeController {
+
+    static final long MIN_CHUNK_SIZE = 4 * 1024 * 1024;
+    static final long MAX_CHUNK_SIZE = 37 * MIN_CHUNK_SIZE;
+    private static final long TARGET_NANOS = 10L * 1000 * 1000 * 1000;
+    private static final double SMOOTHING = 0.3;
+    private static final double MAX_ERROR_RATE = 0.1;
+
+    private static final Map<String, ChunkSizeController> controllers = new HashMap<String, ChunkSizeController>();
+
+    private long chunkSize;
+    private double bytesPerSecond;
+    private double errorRate;
+
+    public ChunkSizeController(long initialChunkSize) {
+        chunkSize = bound(initialChunkSize);
+    }
+
+    /**
+     * Lookup the controller of a host configuration, the learned size carries over to later publishes.
+     *
+     * @param configurationName name of the host configuration
+     * @return the shared controller
+     */
+    public static synchronized ChunkSizeController forConfiguration(@Nonnull String configurationName) {
+        ChunkSizeController controller = controllers.get(configurationName);
+        if (controller == null) {
+            controller = new ChunkSizeController(MIN_CHUNK_SIZE);
+            controllers.put(configurationName, controller);
+        }
+        return controller;
+    }
+
+    /**
+     * @return size in bytes of the next chunk
+     */
+    public synchronized long getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @param bytes number of bytes in the chunk
+     * @param nanos duration of the request
+     */
+    public synchronized void onSuccess(long bytes, long nanos) {
+        errorRate = (1 - SMOOTHING) * errorRate;
+        if (bytes <= 0 || nanos <= 0) {
+            return;
+        }
+        double measured = bytes * 1e9 / nanos;
+        bytesPerSecond = bytesPerSecond == 0 ? measured : (1 - SMOOTHING) * bytesPerSecond + SMOOTHING * measured;
+        long target = (long) (bytesPerSecond * TARGET_NANOS / 1e9);
+        // Grow at most twice per request and not at all while requests keep failing
+        long next = Math.min(target, chunkSize * 2);
+        if (errorRate > MAX_ERROR_RATE) {
+            next = Math.min(next, chunkSize);
+        }
+        chunkSize = bound(next);
+    }
+
+    public synchronized void onFailure() {
+        errorRate = (1 - SMOOTHING) * errorRate + SMOOTHING;
+        chunkSize = bound(chunkSize / 2);
+    }
+
+    private static long bound(long size) {
+        long multiple = size - size % MIN_CHUNK_SIZE;
+        return Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, multiple));
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Content of a file that is uploaded as consecutive chunks.
+ */
+public interface ChunkSource extends Closeable {
+
+    /**
+     * @return total number of bytes of the content
+     */
+    long getLength();
+
+    /**
+     * @return identity of the content to continue interrupted uploads, or null when the content can not be identified
+     */
+    String getIdentity();
+
+    /**
+     * Skip content that does not need to be uploaded.
+     *
+     * @param count number of bytes to skip
+     */
+    void skip(long count) throws IOException;
+
+    /**
+     * Provides the next part of the content, the previous chunk must be read completely before requesting the next.
+     *
+     * @param size maximum number of bytes in the chunk
+     * @return stream over the chunk that supports bulk reads and skips
+     */
+    InputStream nextChunk(long size) throws IOException;
+}
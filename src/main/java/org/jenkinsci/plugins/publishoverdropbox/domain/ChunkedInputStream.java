@@ -28,9 +28,34 @@ public class ChunkedInputStream extends InputStream {
         return read;
     }
 
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        int read = -1;
+        if (progress < chunkSize) {
+            read = source.read(buffer, offset, (int) Math.min(length, chunkSize - progress));
+            if (read > 0) {
+                progress += read;
+            }
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        long skipped = 0;
+        if (count > 0 && progress < chunkSize) {
+            skipped = source.skip(Math.min(count, chunkSize - progress));
+            progress += skipped;
+        }
+        return skipped;
+    }
+
     @Override
     public int available() throws IOException {
-        int limitTo = (int) (chunkSize - progress);
-        return Math.min(limitTo, super.available());
+        long limitTo = chunkSize - progress;
+        return (int) Math.min(limitTo, source.available());
     }
 }
@@ -0,0 +1,77 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Content hashes of the remote files in the folders listed so far, used to skip uploads of unchanged files.
+ */
+class ContentHashIndex {
+
+    private final List<String> listedFolders = new ArrayList<String>();
+    private final Map<String, String> hashes = new HashMap<String, String>();
+
+    /**
+     * @param pathLower path of a file or folder
+     * @return true when the path lies within a folder that is already listed
+     */
+    synchronized boolean isListed(@Nonnull String pathLower) {
+        String path = RemotePaths.normalize(pathLower);
+        for (String folder : listedFolders) {
+            if (RemotePaths.isWithin(path, folder)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    synchronized void addFolder(@Nonnull String pathLower) {
+        listedFolders.add(RemotePaths.normalize(pathLower));
+    }
+
+    synchronized void addFile(@Nonnull String pathLower, String contentHash) {
+        if (contentHash != null) {
+            hashes.put(RemotePaths.normalize(pathLower), contentHash);
+        }
+    }
+
+    /**
+     * @return content hash of the remote file, or null when no file is stored at the path
+     */
+    synchronized String getContentHash(@Nonnull String pathLower) {
+        return hashes.get(RemotePaths.normalize(pathLower));
+    }
+
+    synchronized void clear() {
+        listedFolders.clear();
+        hashes.clear();
+    }
+}
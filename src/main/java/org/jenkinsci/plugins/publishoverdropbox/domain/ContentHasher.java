@@ -0,0 +1,101 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Computes the Dropbox content hash: the SHA-256 of the concatenated SHA-256 hashes of every 4 MB block of a file.
+ * Invoked through {@link hudson.FilePath#act} the file is hashed on the node that holds it.
+ */
+public class ContentHasher extends MasterToSlaveFileCallable<String> {
+
+    static final int BLOCK_SIZE = 4 * 1024 * 1024;
+    private static final long serialVersionUID = 1L;
+    private static final String SHA_256 = "SHA-256";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    @Override
+    public String invoke(File file, VirtualChannel channel) throws IOException, InterruptedException {
+        InputStream content = new FileInputStream(file);
+        try {
+            return hash(content);
+        } finally {
+            content.close();
+        }
+    }
+
+    /**
+     * @param content stream to hash, read until its end but not closed
+     * @return lower case hexadecimal content hash
+     */
+    public static String hash(@Nonnull InputStream content) throws IOException {
+        MessageDigest overall = createDigest();
+        MessageDigest block = createDigest();
+        byte[] buffer = new byte[64 * 1024];
+        int inBlock = 0;
+        int read;
+        while ((read = content.read(buffer, 0, Math.min(buffer.length, BLOCK_SIZE - inBlock))) != -1) {
+            block.update(buffer, 0, read);
+            inBlock += read;
+            if (inBlock == BLOCK_SIZE) {
+                overall.update(block.digest());
+                inBlock = 0;
+            }
+        }
+        if (inBlock > 0) {
+            overall.update(block.digest());
+        }
+        return toHex(overall.digest());
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(SHA_256);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+}
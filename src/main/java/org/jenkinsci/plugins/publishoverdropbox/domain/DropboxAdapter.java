@@ -5,12 +5,19 @@ import org.jenkinsci.plugins.publishoverdropbox.domain.model.RestException;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
 
 public interface DropboxAdapter {
     void setTimeout(int timeout);
 
     int getTimeout();
 
+    void setChunkWorkers(int chunkWorkers);
+
+    int getChunkWorkers();
+
+    void setBatchCommits(boolean batchCommits);
+
     boolean isConnected();
 
     boolean connect() throws IOException;
@@ -21,9 +28,29 @@ public interface DropboxAdapter {
 
     boolean changeWorkingDirectory(String path) throws RestException;
 
+    String resolvePath(String name);
+
     void storeFile(String name, InputStream content, long length) throws RestException;
 
+    void storeFile(String name, ChunkSource source) throws RestException;
+
+    void storeStream(String name, InputStream content) throws RestException;
+
+    void indexContentHashes(String path) throws RestException;
+
+    String findContentHash(String name) throws RestException;
+
+    AgentUpload createAgentUpload(String name, long length) throws InterruptedException;
+
+    void commitAgentUpload(String name, String sessionId, long length) throws RestException;
+
+    void flush() throws RestException;
+
     void cleanWorkingFolder() throws RestException;
 
     void pruneFolder(String path, int pruneRootDays) throws RestException;
+
+    MirrorIndex indexMirror(String path) throws RestException;
+
+    void deleteBatch(List<String> paths) throws RestException;
 }
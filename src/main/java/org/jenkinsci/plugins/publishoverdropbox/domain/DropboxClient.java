@@ -25,17 +25,25 @@
 package org.jenkinsci.plugins.publishoverdropbox.domain;
 
 import hudson.FilePath;
+import hudson.Util;
 import jenkins.plugins.publish_over.BPBuildInfo;
 import jenkins.plugins.publish_over.BPDefaultClient;
 import jenkins.plugins.publish_over.BapPublisherException;
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.jenkinsci.plugins.publishoverdropbox.domain.model.FolderMetadata;
 import org.jenkinsci.plugins.publishoverdropbox.impl.DropboxTransfer;
 import org.jenkinsci.plugins.publishoverdropbox.impl.Messages;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.text.SimpleDateFormat;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class DropboxClient extends BPDefaultClient<DropboxTransfer> {
 
@@ -43,6 +51,14 @@ public class DropboxClient extends BPDefaultClient<DropboxTransfer> {
     private BPBuildInfo buildInfo;
     private final DropboxAdapter dropbox;
     private String token;
+    private TransferEngine transferEngine;
+    private boolean agentUpload;
+    private MirrorIndex mirror;
+    private ArchiveUpload archive;
+    private String archiveRemoteDirectory;
+    private String archiveDirectory;
+    private final AtomicInteger skippedFiles = new AtomicInteger();
+    private final AtomicLong skippedBytes = new AtomicLong();
 
     public DropboxClient(final DropboxV2 client, final BPBuildInfo buildInfo) {
         this.dropbox = client;
@@ -58,7 +74,20 @@ public class DropboxClient extends BPDefaultClient<DropboxTransfer> {
     }
 
 
+    public boolean changeToInitialDirectory() {
+        if (archive != null) {
+            archiveDirectory = "";
+            return true;
+        }
+        return super.changeToInitialDirectory();
+    }
+
     public boolean changeDirectory(final String directory) {
+        if (archive != null) {
+            // Directories of archived files only exist in the archive
+            archiveDirectory = directory.startsWith("/") ? "" : joinPath(archiveDirectory, directory);
+            return true;
+        }
         try {
             return dropbox.changeWorkingDirectory(directory);
         } catch (IOException ioe) {
@@ -67,6 +96,9 @@ public class DropboxClient extends BPDefaultClient<DropboxTransfer> {
     }
 
     public boolean makeDirectory(final String path) {
+        if (archive != null) {
+            return true;
+        }
         try {
             FolderMetadata folder = dropbox.makeDirectory(path);
             return folder != null;
@@ -76,6 +108,10 @@ public class DropboxClient extends BPDefaultClient<DropboxTransfer> {
     }
 
     public void deleteTree() {
+        if (mirror != null) {
+            // The mirror removes what is no longer transferred when the transfer completes
+            return;
+        }
         try {
             dropbox.cleanWorkingFolder();
         } catch (IOException ioe) {
@@ -94,11 +130,170 @@ public class DropboxClient extends BPDefaultClient<DropboxTransfer> {
                 throw new BapPublisherException(Messages.exception_failedToStoreFile("Pruning failed"), ioe);
             }
         }
+        mirror = null;
+        if (transfer.isMirror()) {
+            beginMirror(transfer);
+        } else if (transfer.isIncremental() && !transfer.isArchive()) {
+            beginIncremental(transfer);
+        }
+        if (transfer.isArchive()) {
+            beginArchive(transfer);
+        }
+    }
+
+    /**
+     * List the remote directory once, the transferred files are compared with the listing.
+     */
+    private void beginMirror(final DropboxTransfer transfer) {
+        String remoteDirectory = expandRemoteDirectory(transfer);
+        changeToInitialDirectory();
+        try {
+            mirror = dropbox.indexMirror(remoteDirectory);
+        } catch (IOException ioe) {
+            throw new BapPublisherException(Messages.exception_failedToStoreFile("Mirroring failed"), ioe);
+        }
+    }
+
+    /**
+     * List the remote directory once, the transferred files look up their stored content hash in the listing.
+     */
+    private void beginIncremental(final DropboxTransfer transfer) {
+        String remoteDirectory = expandRemoteDirectory(transfer);
+        changeToInitialDirectory();
+        try {
+            dropbox.indexContentHashes(remoteDirectory);
+        } catch (IOException ioe) {
+            throw new BapPublisherException(Messages.exception_failedToStoreFile("Indexing failed"), ioe);
+        }
+    }
+
+    /**
+     * Delete everything in the mirror that was not transferred.
+     */
+    private void endMirror() throws IOException {
+        MirrorIndex index = mirror;
+        mirror = null;
+        List<String> deletions = index.getDeletions();
+        if (!deletions.isEmpty()) {
+            dropbox.deleteBatch(deletions);
+            if (buildInfo != null) {
+                buildInfo.println(Messages.console_mirror_deleted(deletions.size(), index.getRoot()));
+            }
+        }
+    }
+
+    /**
+     * Start the upload of the archive in the remote directory, the transferred files are added to it.
+     */
+    private void beginArchive(final DropboxTransfer transfer) {
+        abortArchive();
+        String name = Util.replaceMacro(transfer.getArchiveName(), buildInfo.getEnvVars()).trim();
+        ArchiveWriter.Format format = ArchiveWriter.Format.forName(name);
+        if (format == null) {
+            throw new BapPublisherException(Messages.exception_archive_format(name));
+        }
+        String remoteDirectory = expandRemoteDirectory(transfer);
+        changeToInitialDirectory();
+        if (!remoteDirectory.isEmpty() && !changeDirectory(remoteDirectory)) {
+            makeDirectory(remoteDirectory);
+            changeDirectory(remoteDirectory);
+        }
+        try {
+            archive = new ArchiveUpload(dropbox, dropbox.resolvePath(name), format);
+        } catch (IOException ioe) {
+            throw new BapPublisherException(Messages.exception_failedToStoreFile("Archiving failed"), ioe);
+        }
+        archiveRemoteDirectory = remoteDirectory;
+        archiveDirectory = "";
+        if (mirror != null) {
+            mirror.keep(archive.getPath());
+        }
+    }
+
+    /**
+     * The remote directory as publish-over resolves it, the files of the transfer are placed relative to it.
+     */
+    private String expandRemoteDirectory(final DropboxTransfer transfer) {
+        String directory = Util.replaceMacro(StringUtils.defaultString(transfer.getRemoteDirectory()), buildInfo.getEnvVars());
+        if (transfer.isRemoteDirectorySDF()) {
+            directory = new SimpleDateFormat(directory).format(buildInfo.getBuildTime().getTime());
+        }
+        return StringUtils.strip(directory.replace('\\', '/'), "/");
+    }
+
+    private String archiveEntryName(final String fileName) {
+        String entry = joinPath(archiveDirectory, fileName);
+        if (!archiveRemoteDirectory.isEmpty() && entry.startsWith(archiveRemoteDirectory + "/")) {
+            entry = entry.substring(archiveRemoteDirectory.length() + 1);
+        }
+        return entry;
+    }
+
+    private static String joinPath(final String directory, final String name) {
+        String child = StringUtils.strip(name.replace('\\', '/'), "/");
+        if (directory.isEmpty() || child.isEmpty()) {
+            return directory + child;
+        }
+        return directory + "/" + child;
+    }
+
+    private void endArchive() throws IOException {
+        ArchiveUpload upload = archive;
+        archive = null;
+        List<ArchiveWriter.Entry> manifest = upload.finish();
+        if (buildInfo != null) {
+            for (ArchiveWriter.Entry entry : manifest) {
+                buildInfo.println(Messages.console_archive_entry(entry.getName(), entry.getSize()));
+            }
+            buildInfo.println(Messages.console_archive_stored(manifest.size(), upload.getPath(), upload.getArchiveSize()));
+        }
+    }
+
+    private void abortArchive() {
+        if (archive != null) {
+            archive.abort();
+            archive = null;
+        }
+    }
+
+    public void endTransfers(final DropboxTransfer transfer) {
+        try {
+            if (archive != null) {
+                endArchive();
+            }
+            awaitTransfers();
+            dropbox.flush();
+            if (mirror != null) {
+                endMirror();
+            }
+        } catch (IOException ioe) {
+            throw new BapPublisherException(Messages.exception_failedToStoreFile("Committing failed"), ioe);
+        }
+        reportSkipped();
+    }
+
+    private void reportSkipped() {
+        int files = skippedFiles.getAndSet(0);
+        long bytes = skippedBytes.getAndSet(0);
+        if (files > 0 && buildInfo != null) {
+            buildInfo.println(Messages.console_incremental_skipped(files, bytes));
+        }
     }
 
     public void transferFile(final DropboxTransfer transfer, final FilePath filePath, final InputStream content) {
         try {
-            dropbox.storeFile(filePath.getName(), content, filePath.length());
+            if (archive != null) {
+                addToArchive(filePath, content);
+            } else if (transferEngine == null) {
+                String path = dropbox.resolvePath(filePath.getName());
+                long length = filePath.length();
+                keepMirrored(path);
+                if (!isCompared(transfer) || !skipUnchanged(path, filePath, length)) {
+                    store(path, filePath, content, length);
+                }
+            } else {
+                submitTransfer(filePath, isCompared(transfer));
+            }
         } catch (IOException ioe) {
             throw new BapPublisherException(Messages.exception_failedToStoreFile("Storing failed"), ioe);
         } catch (InterruptedException e) {
@@ -106,6 +301,102 @@ public class DropboxClient extends BPDefaultClient<DropboxTransfer> {
         }
     }
 
+    private void addToArchive(final FilePath filePath, final InputStream content) throws IOException, InterruptedException {
+        try {
+            archive.add(archiveEntryName(filePath.getName()), filePath.length(), filePath.lastModified(), content);
+        } catch (IOException e) {
+            // The archive aborted itself
+            archive = null;
+            throw e;
+        }
+    }
+
+    private void submitTransfer(final FilePath filePath, final boolean incremental) throws IOException, InterruptedException {
+        // The given content stream is closed once this call returns, the worker opens its own stream
+        final String path = dropbox.resolvePath(filePath.getName());
+        final long length = filePath.length();
+        keepMirrored(path);
+        transferEngine.submit(path, new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                if (incremental && skipUnchanged(path, filePath, length)) {
+                    return null;
+                }
+                store(path, filePath, null, length);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Mirrored files are always compared, an unchanged file stays in place.
+     */
+    private boolean isCompared(final DropboxTransfer transfer) {
+        return transfer.isIncremental() || mirror != null;
+    }
+
+    private void keepMirrored(final String path) {
+        if (mirror != null) {
+            mirror.keep(path);
+        }
+    }
+
+    private void store(String path, FilePath filePath, InputStream content, long length) throws IOException, InterruptedException {
+        if (agentUpload && filePath.isRemote()) {
+            // Upload on the agent, the content never passes through the controller
+            String sessionId = filePath.act(dropbox.createAgentUpload(path, length));
+            dropbox.commitAgentUpload(path, sessionId, length);
+        } else {
+            store(path, openChunkSource(filePath, content, length));
+        }
+    }
+
+    private void store(String path, ChunkSource source) throws IOException {
+        try {
+            dropbox.storeFile(path, source);
+        } finally {
+            source.close();
+        }
+    }
+
+    /**
+     * Large files on the controller are read through memory mapped chunks, other files through their stream.
+     *
+     * @param content stream of the file, or null to open a new one
+     */
+    private static ChunkSource openChunkSource(FilePath filePath, InputStream content, long length) throws IOException, InterruptedException {
+        if (!filePath.isRemote()) {
+            return MappedChunkSource.open(new File(filePath.getRemote()));
+        }
+        String identity = UploadJournal.identify(filePath.getRemote(), length, filePath.lastModified());
+        return new StreamChunkSource(content != null ? content : filePath.read(), length, identity);
+    }
+
+    /**
+     * Compare the content hash of the local file with the stored file, the local file is hashed on its own node.
+     *
+     * @return true when the stored file is identical and the upload is skipped
+     */
+    private boolean skipUnchanged(String path, FilePath filePath, long length) throws IOException, InterruptedException {
+        if (mirror != null && !mirror.hasFile(path, length)) {
+            // New files and files of another size need no hash to know they changed
+            return false;
+        }
+        String storedHash = dropbox.findContentHash(path);
+        if (storedHash == null || !storedHash.equals(filePath.act(new ContentHasher()))) {
+            return false;
+        }
+        skippedFiles.incrementAndGet();
+        skippedBytes.addAndGet(length);
+        return true;
+    }
+
+    private void awaitTransfers() throws IOException {
+        if (transferEngine != null) {
+            transferEngine.await();
+        }
+    }
+
     public boolean connect() {
         try {
             return dropbox.isConnected() || dropbox.connect();
@@ -117,13 +408,25 @@ public class DropboxClient extends BPDefaultClient<DropboxTransfer> {
     public void disconnect() {
         if ((dropbox != null) && dropbox.isConnected()) {
             try {
+                awaitTransfers();
+                dropbox.flush();
                 dropbox.disconnect();
             } catch (IOException ioe) {
                 throw new BapPublisherException(Messages.exception_exceptionOnDisconnect(ioe.getLocalizedMessage()), ioe);
+            } finally {
+                abortArchive();
+                shutdownTransfers();
             }
         }
     }
 
+    private void shutdownTransfers() {
+        if (transferEngine != null) {
+            transferEngine.shutdown();
+            transferEngine = null;
+        }
+    }
+
     public void disconnectQuietly() {
         try {
             disconnect();
@@ -147,4 +450,37 @@ public class DropboxClient extends BPDefaultClient<DropboxTransfer> {
     public int getTimeout() {
         return dropbox.getTimeout();
     }
+
+    public void setChunkWorkers(int chunkWorkers) {
+        dropbox.setChunkWorkers(chunkWorkers);
+    }
+
+    public int getChunkWorkers() {
+        return dropbox.getChunkWorkers();
+    }
+
+    public void setBatchCommits(boolean batchCommits) {
+        dropbox.setBatchCommits(batchCommits);
+    }
+
+    /**
+     * Upload files of agents on the agent itself instead of streaming them through the controller.
+     *
+     * @param agentUpload true to upload on the node that holds the file
+     */
+    public void setAgentUpload(boolean agentUpload) {
+        this.agentUpload = agentUpload;
+    }
+
+    /**
+     * Transfer files on a pool of workers instead of on the calling thread.
+     *
+     * @param parallelism number of files transferred at the same time, values lower then 2 transfer sequentially
+     */
+    public void setParallelism(int parallelism) {
+        shutdownTransfers();
+        if (parallelism > 1) {
+            transferEngine = new TransferEngine(parallelism);
+        }
+    }
 }
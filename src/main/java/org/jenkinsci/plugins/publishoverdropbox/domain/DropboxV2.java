@@ -24,20 +24,22 @@
 
 package org.jenkinsci.plugins.publishoverdropbox.domain;
 
-import com.cloudbees.plugins.credentials.CredentialsProvider;
-import com.cloudbees.plugins.credentials.domains.DomainRequirement;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import jenkins.model.Jenkins;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
-import org.jenkinsci.plugins.publishoverdropbox.DropboxToken;
 import org.jenkinsci.plugins.publishoverdropbox.domain.model.*;
 import org.jenkinsci.plugins.publishoverdropbox.domain.model.requests.*;
+import org.jenkinsci.plugins.publishoverdropbox.domain.transport.HttpTransport;
+import org.jenkinsci.plugins.publishoverdropbox.domain.transport.TransportSettings;
+import org.jenkinsci.plugins.publishoverdropbox.domain.transport.UrlConnectionTransport;
 import org.jenkinsci.plugins.publishoverdropbox.gson.RuntimeTypeAdapterFactory;
 import org.jenkinsci.plugins.publishoverdropbox.impl.Messages;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
@@ -48,43 +50,83 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.jenkinsci.plugins.publishoverdropbox.domain.JsonObjectRequest.Method.POST;
 
 
 public class DropboxV2 implements DropboxAdapter {
     private static final String URL_TOKEN = "https://api.dropbox.com/oauth2/token";
-    private static final String URL_ACCOUNT_INFO = "https://api.dropbox.com/2/users/get_current_account";
-    private static final String URL_METADATA = "https://api.dropboxapi.com/2/files/get_metadata";
-    private static final String URL_LIST_FOLDER = "https://api.dropboxapi.com/2/files/list_folder";
-    private static final String URL_LIST_FOLDER_CONTINUE = "https://api.dropboxapi.com/2/files/list_folder/continue";
-    private static final String URL_OPS_DELETE = "https://api.dropboxapi.com/2/files/delete";
-    private static final String URL_CREATE_FOLDER = "https://api.dropboxapi.com/2/files/create_folder";
-
-    private static final String URL_UPLOAD = "https://content.dropboxapi.com/2/files/upload";
-    private static final String URL_UPLOAD_START = "https://content.dropboxapi.com/2/files/upload_session/start";
-    private static final String URL_UPLOAD_APPEND = "https://content.dropboxapi.com/2/files/upload_session/append_v2";
-    private static final String URL_UPLOAD_FINISH = "https://content.dropboxapi.com/2/files/upload_session/finish";
+    private static final String API_URL = "https://api.dropboxapi.com";
+    private static final String CONTENT_URL = "https://content.dropboxapi.com";
+    private static final String URL_ACCOUNT_INFO = "/2/users/get_current_account";
+    private static final String URL_METADATA = "/2/files/get_metadata";
+    private static final String URL_LIST_FOLDER = "/2/files/list_folder";
+    private static final String URL_LIST_FOLDER_CONTINUE = "/2/files/list_folder/continue";
+    private static final String URL_LIST_FOLDER_LATEST_CURSOR = "/2/files/list_folder/get_latest_cursor";
+    private static final String URL_OPS_DELETE = "/2/files/delete";
+    private static final String URL_OPS_DELETE_BATCH = "/2/files/delete_batch";
+    private static final String URL_OPS_DELETE_BATCH_CHECK = "/2/files/delete_batch/check";
+    private static final String URL_CREATE_FOLDER = "/2/files/create_folder";
+    private static final String URL_UPLOAD_FINISH_BATCH = "/2/files/upload_session/finish_batch";
+    private static final String URL_UPLOAD_FINISH_BATCH_CHECK = "/2/files/upload_session/finish_batch/check";
+
+    private static final String URL_UPLOAD = "/2/files/upload";
+    private static final String URL_UPLOAD_START = "/2/files/upload_session/start";
+    private static final String URL_UPLOAD_APPEND = "/2/files/upload_session/append_v2";
+    private static final String URL_UPLOAD_FINISH = "/2/files/upload_session/finish";
     private static final String PATH_SEPARATOR = "/";
     private static final String VALUE_AUTHORIZATION_CODE = "authorization_code";
     private static final long MILLISECONDS_PER_DAY = 24 * 60 * 60 * 1000;
     private static final long FOUR_MEGA_BYTE = 4 * 1024 * 1024;
+    // Each worker of a concurrent session holds a chunk in memory, and several files upload at the same time
+    private static final long MAX_CONCURRENT_CHUNK_SIZE = 2 * FOUR_MEGA_BYTE;
     private static final String APPLICATION_JSON = "application/json";
     private static final String APPLICATION_OCTET_STREAM = "application/octet-stream";
+    private static final int MAX_BATCH_ENTRIES = 1000;
+    private static final long JOB_POLL_START_MILLIS = 250;
+    private static final long JOB_POLL_MAX_MILLIS = 4000;
+    private static final int MAX_CACHED_FOLDERS = 1024;
+    private static final int PRUNE_WORKERS = 4;
+    private static final String LOOKUP_FAILED = "lookup_failed";
+    private static final List<String> REJECTED_SESSION_TAGS = Arrays.asList("not_found", "closed", "incorrect_offset");
 
     @VisibleForTesting
     long chunkSize = FOUR_MEGA_BYTE;
+    @VisibleForTesting
+    int pruneWorkers = PRUNE_WORKERS;
+    private int chunkWorkers = 1;
+    private boolean batchCommits = false;
+    private final List<SessionFinish> pendingCommits = new ArrayList<SessionFinish>();
+    private final ContentHashIndex contentHashes = new ContentHashIndex();
+    private final FolderCache folderCache = new FolderCache(MAX_CACHED_FOLDERS);
+    private UploadJournal uploadJournal;
+    private PruneState pruneState;
+    private String apiUrl = API_URL;
+    private String contentUrl = CONTENT_URL;
+    private ChunkSizeController chunkSizeController;
+    private RateLimiter rateLimiter;
+    private TransportSettings transportSettings;
     private int timeout = -1;
     private final String accessToken;
     private final Gson gson;
+    private final HttpTransport transport;
     private AccountInfo userInfo;
     private FolderMetadata workingFolder;
 
     public DropboxV2(String accessToken) {
+        this(accessToken, UrlConnectionTransport.getInstance());
+    }
+
+    public DropboxV2(String accessToken, @Nonnull HttpTransport transport) {
         this.accessToken = accessToken;
+        this.transport = transport;
         this.gson = createGson();
     }
 
@@ -92,7 +134,8 @@ public class DropboxV2 implements DropboxAdapter {
         RuntimeTypeAdapterFactory<Metadata> metadataAdapterFactory = RuntimeTypeAdapterFactory
                 .of(Metadata.class, ".tag")
                 .registerSubtype(FolderMetadata.class, "folder")
-                .registerSubtype(FileMetadata.class, "file");
+                .registerSubtype(FileMetadata.class, "file")
+                .registerSubtype(DeletedMetadata.class, "deleted");
         return new GsonBuilder()
                 .registerTypeAdapterFactory(metadataAdapterFactory)
                 .create();
@@ -115,8 +158,101 @@ public class DropboxV2 implements DropboxAdapter {
         return timeout;
     }
 
+    /**
+     * Change the number of chunks of a single large file that are appended at the same time, values lower then 2
+     * keep the sequential upload session.
+     *
+     * @param chunkWorkers number of concurrent chunk appends
+     */
+    public void setChunkWorkers(int chunkWorkers) {
+        this.chunkWorkers = Math.max(1, chunkWorkers);
+    }
+
+    public int getChunkWorkers() {
+        return chunkWorkers;
+    }
+
+    /**
+     * Commit small files together in batches instead of one commit per upload. Staged files are only visible
+     * in Dropbox after {@link #flush()}.
+     *
+     * @param batchCommits true to stage small files for a batched commit
+     */
+    public void setBatchCommits(boolean batchCommits) {
+        this.batchCommits = batchCommits;
+    }
+
+    /**
+     * Journal the progress of chunked uploads, so an interrupted upload of the same file continues where it stopped.
+     *
+     * @param uploadJournal journal to use, or null to always upload complete files
+     */
+    public void setUploadJournal(UploadJournal uploadJournal) {
+        this.uploadJournal = uploadJournal;
+    }
+
+    /**
+     * Keep what a prune learned about the prune root, so the next prune only reads the changes since then.
+     *
+     * @param pruneState state to use, or null to list the prune root completely every time
+     */
+    public void setPruneState(PruneState pruneState) {
+        this.pruneState = pruneState;
+    }
+
+    /**
+     * Adapt the size of the chunks in upload sessions to the measured throughput.
+     *
+     * @param chunkSizeController controller to learn from, or null to use a fixed chunk size
+     */
+    public void setChunkSizeController(ChunkSizeController chunkSizeController) {
+        this.chunkSizeController = chunkSizeController;
+    }
+
+    /**
+     * Share the request and upload budgets of the token with other clients.
+     *
+     * @param rateLimiter limiter of the token, or null for no limits
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * @param transportSettings settings that uploads on an agent open their transport with, or null to open a plain
+     *                          connection per request
+     */
+    public void setTransportSettings(TransportSettings transportSettings) {
+        this.transportSettings = transportSettings;
+    }
+
+    /**
+     * Send the requests to another server than Dropbox, such as a stand-in during tests.
+     *
+     * @param apiUrl     base url of the RPC endpoints, https://api.dropboxapi.com for Dropbox
+     * @param contentUrl base url of the upload endpoints, https://content.dropboxapi.com for Dropbox
+     */
+    public void setServerUrls(@Nonnull String apiUrl, @Nonnull String contentUrl) {
+        this.apiUrl = apiUrl;
+        this.contentUrl = contentUrl;
+    }
+
+    public boolean isBatchCommits() {
+        return batchCommits;
+    }
+
+    /**
+     * Connect with the account of the access token, a token that connected recently is not verified again.
+     */
     public boolean connect() throws IOException {
-        userInfo = retrieveAccountInfo();
+        AccountCache accounts = AccountCache.getInstance();
+        userInfo = accounts.get(accessToken);
+        if (userInfo == null) {
+            userInfo = retrieveAccountInfo();
+            if (userInfo != null) {
+                accounts.put(accessToken, userInfo);
+            }
+        }
 
         return isConnected();
     }
@@ -126,12 +262,17 @@ public class DropboxV2 implements DropboxAdapter {
     }
 
     public boolean disconnect() throws IOException {
+        synchronized (pendingCommits) {
+            pendingCommits.clear();
+        }
+        contentHashes.clear();
+        folderCache.clear();
         userInfo = null;
         return true;
     }
 
     private AccountInfo retrieveAccountInfo() throws RestException {
-        URL url = getUrl(URL_ACCOUNT_INFO);
+        URL url = getUrl(apiUrl + URL_ACCOUNT_INFO);
         JsonObjectRequest<AccountInfo> request = requestForPostUrlClassResponse(url, AccountInfo.class);
 
         return request.execute();
@@ -141,7 +282,7 @@ public class DropboxV2 implements DropboxAdapter {
         boolean hasSuccess = true;
         try {
             if (!StringUtils.isEmpty(relativePath)) {
-                final Metadata metadata = retrieveMetaData(relativePath);
+                final Metadata metadata = retrieveFolderMetaData(createAbsolutePath(relativePath));
                 if (metadata.isDir() && metadata instanceof FolderMetadata) {
                     workingFolder = (FolderMetadata) metadata;
                 }
@@ -153,12 +294,12 @@ public class DropboxV2 implements DropboxAdapter {
     }
 
     public FolderMetadata makeDirectory(@Nonnull String path) throws RestException {
-        URL url = getUrl(URL_CREATE_FOLDER);
+        URL url = getUrl(apiUrl + URL_CREATE_FOLDER);
         FolderMetadata folder = null;
         String absolute = createAbsolutePath(path);
 
         try {
-            Metadata metadata = retrieveMetaData(absolute);
+            Metadata metadata = retrieveFolderMetaData(absolute);
             if (metadata.isDir()) {
                 folder = (FolderMetadata) metadata;
             }
@@ -175,6 +316,7 @@ public class DropboxV2 implements DropboxAdapter {
             } catch (IOException e) {
                 throw new RestException(Messages.exception_dropbox_folder_create(path), e);
             }
+            folderCache.put(folder);
         }
 
         return folder;
@@ -183,20 +325,15 @@ public class DropboxV2 implements DropboxAdapter {
 
     public void cleanWorkingFolder() throws RestException {
         if (workingFolder.isDir()) {
-            FolderContent contents = listFilesOfFolder(workingFolder);
-            String cursor = null;
-            do {
-                if (cursor != null) {
-                    contents = listFilesForCursor(cursor);
-                }
-                for (Metadata entry : contents.getEntries()) {
-                    delete(entry);
-                }
-                if (contents.hasMore()) {
-                    cursor = contents.getCursor();
+            final List<String> paths = new ArrayList<String>();
+            listFolder(workingFolder.getPathLower(), false, new MetadataCallback() {
+                @Override
+                public boolean onEntry(@Nonnull Metadata entry) {
+                    paths.add(entry.getPathLower());
+                    return true;
                 }
-            } while (contents.hasMore() && cursor != null);
-
+            });
+            deleteBatch(paths);
         } else {
             throw new RestException(Messages.exception_dropbox_folder_delete(workingFolder.getName()));
         }
@@ -208,78 +345,132 @@ public class DropboxV2 implements DropboxAdapter {
     }
 
     void delete(@Nonnull String path) throws RestException {
-        URL url = getUrl(URL_OPS_DELETE);
+        URL url = getUrl(apiUrl + URL_OPS_DELETE);
         DeleteRequest requestContent = new DeleteRequest();
         String absolute = createAbsolutePath(path);
         requestContent.setPath(absolute);
         if (StringUtils.isNotEmpty(path) && !"/".equals(path)) {
             JsonObjectRequest<Metadata> request = requestPostRequestResponse(url, requestContent, Metadata.class);
+            folderCache.remove(absolute);
             request.execute();
         } else {
             throw new RestException(Messages.exception_dropbox_folder_delete(path));
         }
     }
 
+    /**
+     * Delete a list of paths with as few requests as possible.
+     *
+     * @param paths paths relative to the working folder or absolute
+     */
+    public void deleteBatch(@Nonnull List<String> paths) throws RestException {
+        // Known content hashes may belong to deleted files
+        contentHashes.clear();
+        for (int start = 0; start < paths.size(); start += MAX_BATCH_ENTRIES) {
+            List<String> batch = paths.subList(start, Math.min(paths.size(), start + MAX_BATCH_ENTRIES));
+            DeleteBatchRequest requestContent = new DeleteBatchRequest();
+            for (String path : batch) {
+                if (StringUtils.isEmpty(path) || "/".equals(path)) {
+                    throw new RestException(Messages.exception_dropbox_folder_delete(path));
+                }
+                DeleteRequest entry = new DeleteRequest();
+                entry.setPath(createAbsolutePath(path));
+                requestContent.entries.add(entry);
+                folderCache.remove(entry.getPath());
+            }
+            URL url = getUrl(apiUrl + URL_OPS_DELETE_BATCH);
+            JsonObjectRequest<BatchJobStatus> request = requestPostRequestResponse(url, requestContent, BatchJobStatus.class);
+            BatchJobStatus status = awaitJob(URL_OPS_DELETE_BATCH_CHECK, request.execute());
+            // Results are in the same order as the requested paths
+            List<BatchEntry> entries = status.getEntries();
+            for (int i = 0; i < entries.size() && i < batch.size(); i++) {
+                BatchEntry entry = entries.get(i);
+                if (!entry.isSuccess()) {
+                    String reason = entry.getFailure() != null ? entry.getFailure().getTag() : entry.getTag();
+                    throw new RestException(Messages.exception_dropbox_folder_delete_batch(batch.get(i), reason));
+                }
+            }
+        }
+    }
+
+    /**
+     * Delete the children of a folder that hold no file modified in the given number of days. Sibling subtrees are
+     * evaluated concurrently, all requests share the budget of the token. With a prune state only the changes since
+     * the previous prune are listed.
+     *
+     * @param path          folder relative to the working folder or absolute
+     * @param pruneRootDays age in days of the newest file in a prunable child
+     */
     public void pruneFolder(@Nonnull String path, int pruneRootDays) throws RestException {
         Date cutoff = new Date(System.currentTimeMillis() - pruneRootDays * MILLISECONDS_PER_DAY);
         String absolute = createAbsolutePath(path);
-        FolderContent contents = listFilesOfPath(absolute);
-        String cursor = null;
-        do {
-            if (cursor != null) {
-                contents = listFilesForCursor(cursor);
+        new PruneEngine(this, cutoff, pruneWorkers, MAX_BATCH_ENTRIES, pruneState).prune(absolute);
+    }
+
+    /**
+     * Index a folder with a single recursive listing to mirror files into it. The listed content hashes and folders
+     * are kept as well, comparing the mirrored files and creating their folders need no further listings.
+     *
+     * @param path folder relative to the working folder or absolute
+     * @return index of the folder, empty when the folder does not exist yet
+     */
+    public MirrorIndex indexMirror(@Nonnull String path) throws RestException {
+        String folder = RemotePaths.normalize(createAbsolutePath(path));
+        MirrorIndex index = new MirrorIndex(folder);
+        synchronized (contentHashes) {
+            indexFolder(folder, index);
+        }
+        return index;
+    }
+
+    /**
+     * Index the content hashes below a folder with a single recursive listing, lookups of the files of a transfer
+     * in it need no further listings.
+     *
+     * @param path folder relative to the working folder or absolute
+     */
+    public void indexContentHashes(@Nonnull String path) throws RestException {
+        String folder = RemotePaths.normalize(createAbsolutePath(path));
+        synchronized (contentHashes) {
+            if (!contentHashes.isListed(folder)) {
+                indexFolder(folder, null);
             }
-            for (Metadata entry : contents.getEntries()) {
-                boolean isModifiedSince = isEntryModifiedSince(entry, cutoff);
-                if (!isModifiedSince) {
-                    delete(entry.getPathLower());
-                }
+        }
+    }
+
+    /**
+     * List a folder recursively into the content hashes and the known folders, and into the mirror when one is given.
+     *
+     * @param folder normalized absolute path of the folder
+     */
+    private void indexFolder(@Nonnull String folder, @Nullable final MirrorIndex mirror) throws RestException {
+        if (!folder.isEmpty()) {
+            try {
+                retrieveMetaData(folder);
+            } catch (RestException e) {
+                // A folder that does not exist yet holds no files
+                contentHashes.addFolder(folder);
+                return;
             }
-            // Paging of the listing
-            cursor = contents.getCursor();
-        }
-        while (contents.hasMore() && cursor != null);
-    }
-
-    public boolean isEntryModifiedSince(@Nonnull Metadata metadata, @Nonnull Date cutoff) throws RestException {
-        boolean isModifiedSince = false;
-        if (metadata instanceof FileMetadata) {
-            Date lastModified = parseDate(((FileMetadata) metadata).getServerModified());
-            isModifiedSince = lastModified.after(cutoff);
-        } else if (metadata instanceof FolderMetadata) {
-            FolderContent contents = listFilesOfFolder((FolderMetadata) metadata);
-            String cursor = null;
-            contents:
-            do {
-                if (cursor != null) {
-                    contents = listFilesForCursor(cursor);
-                }
-                List<Metadata> entries = contents.getEntries();
-                // Evaluate file date first since that is available
-                for (Metadata entry : entries) {
-                    if (entry instanceof FileMetadata) {
-                        isModifiedSince = isEntryModifiedSince(entry, cutoff);
-                        if (isModifiedSince) {
-                            break contents;
-                        }
+        }
+        listFolder(folder, true, new MetadataCallback() {
+            @Override
+            public boolean onEntry(@Nonnull Metadata entry) {
+                if (entry instanceof FileMetadata) {
+                    contentHashes.addFile(entry.getPathLower(), ((FileMetadata) entry).getContentHash());
+                    if (mirror != null) {
+                        mirror.addFile(entry.getPathLower(), entry.getSize());
                     }
-                }
-                // Traverse the given folders after evaluating the files
-                for (Metadata entry : entries) {
-                    if (entry instanceof FolderMetadata) {
-                        isModifiedSince = isEntryModifiedSince(entry, cutoff);
-                        if (isModifiedSince) {
-                            break contents;
-                        }
+                } else if (entry instanceof FolderMetadata) {
+                    folderCache.put((FolderMetadata) entry);
+                    if (mirror != null) {
+                        mirror.addFolder(entry.getPathLower());
                     }
                 }
-                // Paging of the listing
-                cursor = contents.getCursor();
+                return true;
             }
-            while (contents.hasMore() && cursor != null);
-        }
-
-        return isModifiedSince;
+        });
+        contentHashes.addFolder(folder);
     }
 
     @VisibleForTesting
@@ -293,15 +484,146 @@ public class DropboxV2 implements DropboxAdapter {
     }
 
     /**
-     * @param name    name of the new file to store the content in
+     * @param name    name of the new file in the working folder, or an absolute path, to store the content in
      * @param content data stream of the content
      * @param length  content size in bytes
      */
     public void storeFile(@Nonnull String name, @Nonnull InputStream content, long length) throws RestException {
-        if (length <= chunkSize) {
-            singleStore(name, content, length);
-        } else {
-            chunkedStore(name, content, length);
+        storeFile(name, new StreamChunkSource(content, length));
+    }
+
+    /**
+     * @param name   name of the new file in the working folder, or an absolute path, to store the content in
+     * @param source chunks of the content, not closed by this call
+     */
+    public void storeFile(@Nonnull String name, @Nonnull ChunkSource source) throws RestException {
+        long length = source.getLength();
+        try {
+            if (length <= chunkSize && batchCommits) {
+                stagedStore(name, source.nextChunk(length), length);
+            } else if (length <= chunkSize) {
+                singleStore(name, source.nextChunk(length), length);
+            } else {
+                chunkedStore(name, source, length);
+            }
+        } catch (RestException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new RestException(Messages.exception_dropbox_file_upload_simple(name), e);
+        }
+    }
+
+    /**
+     * Store a stream of unknown length, the content is uploaded in chunks while it is produced.
+     *
+     * @param name    name of the new file in the working folder, or an absolute path, to store the content in
+     * @param content data stream of the content, read to its end and not closed by this call
+     */
+    public void storeStream(@Nonnull String name, @Nonnull InputStream content) throws RestException {
+        try {
+            long size = nextChunkSize();
+            byte[] chunk = readChunk(content, size);
+            if (chunk.length < size) {
+                singleStore(name, new ByteArrayInputStream(chunk), chunk.length);
+                return;
+            }
+            // Start session
+            URL startUrl = getUrl(contentUrl + URL_UPLOAD_START);
+            JsonObjectRequest<Session> startRequest = requestForUpload(startUrl, new SessionStart(), Session.class, new ByteArrayInputStream(chunk), chunk.length);
+            String sessionId = executeMeasured(startRequest, chunk.length).getSessionId();
+            long offSet = chunk.length;
+
+            // Only a chunk that is not filled completely is known to be the last
+            size = nextChunkSize();
+            chunk = readChunk(content, size);
+            while (chunk.length == size) {
+                appendChunk(sessionId, offSet, chunk, false);
+                offSet += chunk.length;
+                size = nextChunkSize();
+                chunk = readChunk(content, size);
+            }
+
+            // Commit uploader
+            URL finishUrl = getUrl(contentUrl + URL_UPLOAD_FINISH);
+            SessionFinish finishContent = new SessionFinish();
+            finishContent.cursor.setSessionId(sessionId);
+            finishContent.cursor.setOffset(offSet);
+            finishContent.commit.setPath(createPath(name));
+            JsonObjectRequest<FileMetadata> finishRequest = requestForUpload(finishUrl, finishContent, FileMetadata.class, new ByteArrayInputStream(chunk), chunk.length);
+            finishRequest.execute();
+        } catch (RestException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new RestException(Messages.exception_dropbox_file_upload_simple(name), e);
+        }
+    }
+
+    /**
+     * Lookup the content hash of a stored file. A file outside the folders indexed by
+     * {@link #indexContentHashes(String)} or {@link #indexMirror(String)} lists its own folder first.
+     *
+     * @param name name of a file in the working folder, or an absolute path
+     * @return content hash of the stored file, or null when no file is stored at the path
+     */
+    public String findContentHash(@Nonnull String name) throws RestException {
+        String path = createPath(name);
+        synchronized (contentHashes) {
+            if (!contentHashes.isListed(path)) {
+                indexFolder(RemotePaths.normalize(path.substring(0, path.lastIndexOf(PATH_SEPARATOR))), null);
+            }
+        }
+        return contentHashes.getContentHash(path);
+    }
+
+    /**
+     * Prepare the upload of a file on the node that holds it, invoke the result through {@link hudson.FilePath#act}
+     * and pass its result to {@link #commitAgentUpload(String, String, long)}. The agent does not report its requests
+     * back, the budget of the file is taken from the rate limiter of the token before it starts.
+     *
+     * @param name   name of the new file in the working folder, or an absolute path
+     * @param length size of the file in bytes
+     * @return callable that uploads the file it is invoked on
+     */
+    public AgentUpload createAgentUpload(@Nonnull String name, long length) throws InterruptedException {
+        double requestsPerSecond = 0;
+        double bytesPerSecond = 0;
+        if (rateLimiter != null) {
+            rateLimiter.acquire(length);
+            requestsPerSecond = rateLimiter.getRequestsPerSecond();
+            bytesPerSecond = rateLimiter.getBytesPerSecond();
+        }
+        return new AgentUpload(accessToken, apiUrl, contentUrl, timeout, chunkWorkers, nextChunkSize(), createPath(name), batchCommits,
+                transportSettings, requestsPerSecond, bytesPerSecond);
+    }
+
+    /**
+     * @param name      name of the file in the working folder, or an absolute path
+     * @param sessionId result of the {@link AgentUpload}, null when nothing is left to commit
+     * @param length    size of the file in bytes
+     */
+    public void commitAgentUpload(@Nonnull String name, String sessionId, long length) throws RestException {
+        if (sessionId != null) {
+            stageCommit(createPath(name), sessionId, length);
+        }
+    }
+
+    /**
+     * Commit all files staged for a batched commit. A failed batch does not stop the other batches, the failure
+     * names every file that is not stored.
+     */
+    public void flush() throws RestException {
+        List<SessionFinish> commits;
+        synchronized (pendingCommits) {
+            commits = new ArrayList<SessionFinish>(pendingCommits);
+            pendingCommits.clear();
+        }
+        List<String> failures = new ArrayList<String>();
+        for (int start = 0; start < commits.size(); start += MAX_BATCH_ENTRIES) {
+            List<SessionFinish> batch = commits.subList(start, Math.min(commits.size(), start + MAX_BATCH_ENTRIES));
+            finishBatch(batch, failures);
+        }
+        if (!failures.isEmpty()) {
+            throw new RestException(Messages.exception_dropbox_file_upload_batch_failed(failures.size(), commits.size(), StringUtils.join(failures, ", ")));
         }
     }
 
@@ -310,7 +632,7 @@ public class DropboxV2 implements DropboxAdapter {
      * */
 
     private FileMetadata singleStore(@Nonnull String name, @Nonnull InputStream content, long length) throws RestException {
-        URL url = getUrl(URL_UPLOAD);
+        URL url = getUrl(contentUrl + URL_UPLOAD);
         UploadRequest uploadRequest = new UploadRequest();
         uploadRequest.setPath(createPath(name));
         JsonObjectRequest<FileMetadata> request = requestForUpload(url, uploadRequest, FileMetadata.class, content, length);
@@ -324,80 +646,464 @@ public class DropboxV2 implements DropboxAdapter {
         return fileMetadata;
     }
 
-    private void chunkedStore(String name, InputStream content, long length) throws RestException {
-        // Start session
-        InputStream chunkStream;
-        long offSet = 0;
-        URL startUrl = getUrl(URL_UPLOAD_START);
-        chunkStream = new ChunkedInputStream(content, chunkSize);
+    private void stagedStore(@Nonnull String name, @Nonnull InputStream content, long length) throws RestException {
+        String sessionId = uploadClosedSession(name, content, length);
+        stageCommit(createPath(name), sessionId, length);
+    }
+
+    /**
+     * Upload the content in a closed session, the commit is postponed to the batch.
+     *
+     * @return id of the session
+     */
+    String uploadClosedSession(@Nonnull String name, @Nonnull InputStream content, long length) throws RestException {
+        URL startUrl = getUrl(contentUrl + URL_UPLOAD_START);
         SessionStart startContent = new SessionStart();
-        JsonObjectRequest<Session> startRequest = requestForUpload(startUrl, startContent, Session.class, chunkStream, chunkSize);
-        Session session = startRequest.execute();
-        offSet += chunkSize;
+        startContent.setClose(true);
+        JsonObjectRequest<Session> startRequest = requestForUpload(startUrl, startContent, Session.class, content, length);
+        final Session session;
+        try {
+            session = startRequest.execute();
+        } catch (IOException e) {
+            throw new RestException(Messages.exception_dropbox_file_upload_simple(name), e);
+        }
+        return session.getSessionId();
+    }
+
+    private void stageCommit(String path, String sessionId, long length) throws RestException {
+        SessionFinish finish = new SessionFinish();
+        finish.cursor.setSessionId(sessionId);
+        finish.cursor.setOffset(length);
+        finish.commit.setPath(path);
+        finish.commit.setMode(UploadRequest.WriteMode.OVERWRITE);
+        boolean isFull;
+        synchronized (pendingCommits) {
+            pendingCommits.add(finish);
+            isFull = pendingCommits.size() >= MAX_BATCH_ENTRIES;
+        }
+        if (isFull) {
+            flush();
+        }
+    }
+
+    /**
+     * @param failures receives the path and reason of each file that is not stored
+     */
+    private void finishBatch(List<SessionFinish> batch, List<String> failures) throws RestException {
+        URL url = getUrl(apiUrl + URL_UPLOAD_FINISH_BATCH);
+        SessionFinishBatch requestContent = new SessionFinishBatch();
+        requestContent.entries.addAll(batch);
+        JsonObjectRequest<BatchJobStatus> request = requestPostRequestResponse(url, requestContent, BatchJobStatus.class);
+        List<BatchEntry> entries;
+        try {
+            entries = awaitJob(URL_UPLOAD_FINISH_BATCH_CHECK, request.execute()).getEntries();
+        } catch (RestException e) {
+            for (SessionFinish finish : batch) {
+                failures.add(Messages.exception_dropbox_file_upload_batch(finish.commit.getPath(), e.getMessage()));
+            }
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            BatchEntry entry = i < entries.size() ? entries.get(i) : null;
+            if (entry == null || !entry.isSuccess()) {
+                String reason = entry == null ? null : entry.getFailure() != null ? entry.getFailure().getTag() : entry.getTag();
+                failures.add(Messages.exception_dropbox_file_upload_batch(batch.get(i).commit.getPath(), reason));
+            }
+        }
+    }
+
+    /**
+     * Poll an asynchronous batch job until it is no longer in progress.
+     *
+     * @param checkUrl endpoint that reports the status of the job
+     * @param status   the response that started the job
+     * @return the completed status
+     */
+    private BatchJobStatus awaitJob(String checkUrl, BatchJobStatus status) throws RestException {
+        long delay = JOB_POLL_START_MILLIS;
+        String jobId = status.getAsyncJobId();
+        while (status.isAsyncJob() || status.isInProgress()) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RestException(Messages.exception_dropbox_job(jobId), e);
+            }
+            delay = Math.min(delay * 2, JOB_POLL_MAX_MILLIS);
+            AsyncJobRequest requestContent = new AsyncJobRequest();
+            requestContent.setAsyncJobId(jobId);
+            JsonObjectRequest<BatchJobStatus> request = requestPostRequestResponse(getUrl(apiUrl + checkUrl), requestContent, BatchJobStatus.class);
+            status = request.execute();
+        }
+        if (!status.isComplete()) {
+            throw new RestException(Messages.exception_dropbox_job(jobId));
+        }
+
+        return status;
+    }
 
-        while (length - offSet > chunkSize) {
+    private void chunkedStore(String name, ChunkSource source, long length) throws IOException {
+        String path = createPath(name);
+        UploadJournal.Entry resumed = null;
+        if (uploadJournal != null && source.getIdentity() != null) {
+            resumed = uploadJournal.find(path, source.getIdentity());
+        }
+        try {
+            // Concurrent sessions only accept chunks of a multiple of 4 MB, except for the last chunk
+            boolean concurrent = resumed != null ? resumed.isConcurrent() : chunkWorkers > 1 && nextChunkSize() % FOUR_MEGA_BYTE == 0;
+            if (concurrent) {
+                concurrentChunkedStore(path, source, length, resumed);
+            } else {
+                sequentialChunkedStore(path, source, length, resumed);
+            }
+        } catch (IOException e) {
+            if (uploadJournal != null && isSessionRejected(e)) {
+                // The session expired or lost track of its offset, the next attempt starts over
+                uploadJournal.remove(path);
+            }
+            // Otherwise the journal keeps the confirmed chunks for the next attempt to continue after
+            throw e;
+        }
+        if (uploadJournal != null) {
+            uploadJournal.remove(path);
+        }
+    }
+
+    /**
+     * @return true when Dropbox refused the upload session itself, instead of a failed connection or server
+     */
+    private static boolean isSessionRejected(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RestException && ((RestException) cause).getResponse() instanceof ErrorResponse) {
+                String summary = ((ErrorResponse) ((RestException) cause).getResponse()).getErrorSummary();
+                if (summary == null) {
+                    return false;
+                }
+                // Appends report the lookup error itself, a finish wraps it in lookup_failed
+                String[] tags = StringUtils.removeStart(summary, LOOKUP_FAILED + PATH_SEPARATOR).split(PATH_SEPARATOR);
+                return REJECTED_SESSION_TAGS.contains(tags[0]);
+            }
+        }
+        return false;
+    }
+
+    private void sequentialChunkedStore(String name, ChunkSource source, long length, UploadJournal.Entry resumed) throws IOException {
+        InputStream chunkStream;
+        long offSet;
+        String sessionId;
+        UploadJournal.Entry journalEntry;
+        if (resumed != null) {
+            // Continue after the last confirmed chunk
+            offSet = resumed.getOffset();
+            source.skip(offSet);
+            sessionId = resumed.getSessionId();
+            journalEntry = resumed;
+        } else {
+            // Start session
+            URL startUrl = getUrl(contentUrl + URL_UPLOAD_START);
+            long size = Math.min(nextChunkSize(), length);
+            chunkStream = source.nextChunk(size);
+            SessionStart startContent = new SessionStart();
+            JsonObjectRequest<Session> startRequest = requestForUpload(startUrl, startContent, Session.class, chunkStream, size);
+            Session session = executeMeasured(startRequest, size);
+            offSet = size;
+            sessionId = session.getSessionId();
+            journalEntry = startJournal(name, source, sessionId, false, size);
+            journalOffset(journalEntry, offSet);
+        }
+
+        // Chunks of a sequential session may differ in size, each chunk uses the latest learned size
+        long size = nextChunkSize();
+        while (length - offSet > size) {
             // Add chunk to session
-            URL appendUrl = getUrl(URL_UPLOAD_APPEND);
-            chunkStream = new ChunkedInputStream(content, chunkSize);
+            URL appendUrl = getUrl(contentUrl + URL_UPLOAD_APPEND);
+            chunkStream = source.nextChunk(size);
             SessionAppend appendContent = new SessionAppend();
             appendContent.cursor.setOffset(offSet);
-            appendContent.cursor.setSessionId(session.getSessionId());
-            JsonObjectRequest<ErrorResponse> appendRequest = requestForUpload(appendUrl, appendContent, ErrorResponse.class, chunkStream, chunkSize);
-            appendRequest.execute();
-            offSet += chunkSize;
+            appendContent.cursor.setSessionId(sessionId);
+            JsonObjectRequest<ErrorResponse> appendRequest = requestForUpload(appendUrl, appendContent, ErrorResponse.class, chunkStream, size);
+            executeMeasured(appendRequest, size);
+            offSet += size;
+            journalOffset(journalEntry, offSet);
+            size = nextChunkSize();
         }
         // Commit uploader
-        URL finishUrl = getUrl(URL_UPLOAD_FINISH);
-        chunkStream = new ChunkedInputStream(content, chunkSize);
+        URL finishUrl = getUrl(contentUrl + URL_UPLOAD_FINISH);
+        chunkStream = source.nextChunk(length - offSet);
         SessionFinish finishContent = new SessionFinish();
-        finishContent.cursor.setSessionId(session.getSessionId());
+        finishContent.cursor.setSessionId(sessionId);
         finishContent.cursor.setOffset(offSet);
         finishContent.commit.setPath(createPath(name));
         JsonObjectRequest<FileMetadata> finishRequest = requestForUpload(finishUrl, finishContent, FileMetadata.class, chunkStream, length - offSet);
         finishRequest.execute();
     }
 
-    @VisibleForTesting
-    FolderContent listFilesOfFolder(@Nonnull FolderMetadata folder) throws RestException {
-        return listFilesOfPath(folder.getPathLower());
+    private void concurrentChunkedStore(String name, ChunkSource source, long length, UploadJournal.Entry resumed) throws IOException {
+        final String sessionId;
+        final long sessionChunkSize;
+        final UploadJournal.Entry journalEntry;
+        if (resumed != null) {
+            // Chunks keep the boundaries of the interrupted upload
+            sessionId = resumed.getSessionId();
+            sessionChunkSize = resumed.getChunkSize();
+            journalEntry = resumed;
+        } else {
+            // Start an empty session that accepts appends in any order
+            URL startUrl = getUrl(contentUrl + URL_UPLOAD_START);
+            SessionStart startContent = new SessionStart();
+            startContent.setSessionType(SessionStart.SessionType.CONCURRENT);
+            JsonObjectRequest<Session> startRequest = requestForUpload(startUrl, startContent, Session.class, emptyStream(), 0);
+            sessionId = startRequest.execute().getSessionId();
+            // Concurrent sessions need chunks of the same size
+            sessionChunkSize = Math.min(nextChunkSize(), MAX_CONCURRENT_CHUNK_SIZE);
+            journalEntry = startJournal(name, source, sessionId, true, sessionChunkSize);
+        }
+
+        // Read chunks in order and append them on the workers, one buffer per worker limits the memory use
+        int workers = Math.max(1, chunkWorkers);
+        final ExecutorService executor = Executors.newFixedThreadPool(workers);
+        final Semaphore buffers = new Semaphore(workers);
+        final AtomicReference<RestException> failure = new AtomicReference<RestException>();
+        final List<Future<?>> appends = new ArrayList<Future<?>>();
+        final long lastOffSet = length > 0 ? (length - 1) / sessionChunkSize * sessionChunkSize : 0;
+        long offSet = 0;
+        try {
+            while (offSet < lastOffSet && failure.get() == null) {
+                final int size = (int) sessionChunkSize;
+                if (journalEntry != null && journalEntry.isAppended(offSet)) {
+                    source.skip(size);
+                    offSet += size;
+                    continue;
+                }
+                buffers.acquire();
+                final byte[] chunk = new byte[size];
+                try {
+                    IOUtils.readFully(source.nextChunk(size), chunk);
+                } catch (IOException e) {
+                    buffers.release();
+                    throw new RestException(Messages.exception_dropbox_file_upload_chunk(name, offSet), e);
+                }
+                final long chunkOffSet = offSet;
+                appends.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            appendChunk(sessionId, chunkOffSet, chunk, false);
+                            journalAppended(journalEntry, chunkOffSet);
+                        } catch (RestException e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            buffers.release();
+                        }
+                    }
+                }));
+                offSet += size;
+            }
+            for (Future<?> append : appends) {
+                append.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RestException(Messages.exception_dropbox_file_upload_chunk(name, offSet), e);
+        } catch (ExecutionException e) {
+            throw new RestException(Messages.exception_dropbox_file_upload_chunk(name, offSet), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+
+        // A closed session rejects appends, the last chunk closes it only after every other chunk is appended
+        if (journalEntry == null || !journalEntry.isAppended(lastOffSet)) {
+            byte[] chunk = new byte[(int) (length - lastOffSet)];
+            try {
+                IOUtils.readFully(source.nextChunk(chunk.length), chunk);
+            } catch (IOException e) {
+                throw new RestException(Messages.exception_dropbox_file_upload_chunk(name, lastOffSet), e);
+            }
+            appendChunk(sessionId, lastOffSet, chunk, true);
+            journalAppended(journalEntry, lastOffSet);
+        }
+
+        // Commit the closed session
+        URL finishUrl = getUrl(contentUrl + URL_UPLOAD_FINISH);
+        SessionFinish finishContent = new SessionFinish();
+        finishContent.cursor.setSessionId(sessionId);
+        finishContent.cursor.setOffset(length);
+        finishContent.commit.setPath(createPath(name));
+        JsonObjectRequest<FileMetadata> finishRequest = requestForUpload(finishUrl, finishContent, FileMetadata.class, emptyStream(), 0);
+        finishRequest.execute();
+    }
+
+    private void appendChunk(String sessionId, long offSet, byte[] chunk, boolean close) throws RestException {
+        URL appendUrl = getUrl(contentUrl + URL_UPLOAD_APPEND);
+        SessionAppend appendContent = new SessionAppend();
+        appendContent.cursor.setOffset(offSet);
+        appendContent.cursor.setSessionId(sessionId);
+        appendContent.setClose(close);
+        InputStream chunkStream = new ByteArrayInputStream(chunk);
+        JsonObjectRequest<ErrorResponse> appendRequest = requestForUpload(appendUrl, appendContent, ErrorResponse.class, chunkStream, chunk.length);
+        executeMeasured(appendRequest, chunk.length);
+    }
+
+    /**
+     * @return the next bytes of the stream, fewer than requested only at the end of the stream
+     */
+    private static byte[] readChunk(InputStream content, long size) throws IOException {
+        byte[] chunk = new byte[(int) size];
+        int read = IOUtils.read(content, chunk);
+        return read == chunk.length ? chunk : Arrays.copyOf(chunk, read);
+    }
+
+    private long nextChunkSize() {
+        return chunkSizeController != null ? chunkSizeController.getChunkSize() : chunkSize;
     }
 
-    private FolderContent listFilesOfPath(@Nonnull String path) throws RestException {
-        URL url = getUrl(URL_LIST_FOLDER);
+    /**
+     * Execute a chunk upload and report its duration to the chunk size controller.
+     */
+    private <T> T executeMeasured(JsonObjectRequest<T> request, long bytes) throws RestException {
+        long started = System.nanoTime();
+        T response;
+        try {
+            response = request.execute();
+        } catch (RestException e) {
+            if (chunkSizeController != null) {
+                chunkSizeController.onFailure();
+            }
+            throw e;
+        }
+        long duration = System.nanoTime() - started;
+        RequestMetrics.getInstance().chunk(bytes, duration);
+        if (chunkSizeController != null) {
+            chunkSizeController.onSuccess(bytes, duration);
+        }
+        return response;
+    }
+
+    /**
+     * @return journal entry of a new session, or null when the upload can not be continued later
+     */
+    private UploadJournal.Entry startJournal(String path, ChunkSource source, String sessionId, boolean concurrent, long sessionChunkSize) {
+        UploadJournal.Entry entry = null;
+        if (uploadJournal != null && source.getIdentity() != null) {
+            entry = new UploadJournal.Entry(path, source.getIdentity(), sessionId, concurrent, sessionChunkSize);
+            uploadJournal.save(entry);
+        }
+        return entry;
+    }
+
+    private void journalOffset(UploadJournal.Entry entry, long offSet) {
+        if (entry != null) {
+            entry.setOffset(offSet);
+            uploadJournal.save(entry);
+        }
+    }
+
+    private void journalAppended(UploadJournal.Entry entry, long offSet) {
+        if (entry != null) {
+            entry.addAppended(offSet);
+            uploadJournal.save(entry);
+        }
+    }
+
+    private static InputStream emptyStream() {
+        return new ByteArrayInputStream(new byte[0]);
+    }
+
+    /**
+     * Stream the entries of a folder to a callback while the listing is read, memory use does not grow with the
+     * number of entries.
+     *
+     * @param path      absolute path of the folder, empty for the root
+     * @param recursive include the content of all sub folders
+     * @param callback  receives every file and folder, until it stops the listing
+     * @return cursor to list the changes made after this listing with, or null when the callback stopped it
+     */
+    public String listFolder(@Nonnull String path, boolean recursive, @Nonnull MetadataCallback callback) throws RestException {
+        ListFolderReader reader = new ListFolderReader(callback);
         ListFolderRequest requestContent = new ListFolderRequest();
         requestContent.setPath(path);
-        JsonObjectRequest<FolderContent> request = requestPostRequestResponse(url, requestContent, FolderContent.class);
-
-        final FolderContent content;
+        requestContent.setRecursive(recursive);
+        String cursor;
         try {
-            content = request.execute();
+            cursor = requestPostRequestReader(getUrl(apiUrl + URL_LIST_FOLDER), requestContent, reader).execute();
         } catch (IOException e) {
             throw new RestException(Messages.exception_dropbox_folder_list(path), e);
         }
+        readPages(reader, cursor);
 
-        return content;
+        return reader.getLatestCursor();
     }
 
-    private FolderContent listFilesForCursor(String cursor) throws RestException {
-        URL url = getUrl(URL_LIST_FOLDER_CONTINUE);
+    /**
+     * Stream the changes made in a folder since an earlier listing to a callback. Removed files and folders are
+     * received as {@link DeletedMetadata}.
+     *
+     * @param cursor   cursor of the earlier listing
+     * @param callback receives every changed file and folder, until it stops the listing
+     * @return cursor to list the changes made after these changes with, or null when the callback stopped it
+     */
+    public String listFolderChanges(@Nonnull String cursor, @Nonnull MetadataCallback callback) throws RestException {
+        ListFolderReader reader = new ListFolderReader(callback);
+        readPages(reader, cursor);
 
-        CursorRequest requestContent = new CursorRequest();
-        requestContent.setCursor(cursor);
-        JsonObjectRequest<FolderContent> request = requestPostRequestResponse(url, requestContent, FolderContent.class);
+        return reader.getLatestCursor();
+    }
 
-        final FolderContent content;
+    /**
+     * Mark the current state of a folder without listing its content.
+     *
+     * @param path      absolute path of the folder, empty for the root
+     * @param recursive include the content of all sub folders
+     * @return cursor to list the changes made from now on with
+     */
+    public String getLatestCursor(@Nonnull String path, boolean recursive) throws RestException {
+        ListFolderRequest requestContent = new ListFolderRequest();
+        requestContent.setPath(path);
+        requestContent.setRecursive(recursive);
+        JsonObjectRequest<FolderContent> request = requestPostRequestResponse(getUrl(apiUrl + URL_LIST_FOLDER_LATEST_CURSOR), requestContent, FolderContent.class);
         try {
-            content = request.execute();
+            return request.execute().getCursor();
         } catch (IOException e) {
-            throw new RestException(Messages.exception_dropbox_folder_list_cursor(), e);
+            throw new RestException(Messages.exception_dropbox_folder_list(path), e);
         }
+    }
 
-        return content;
+    private void readPages(ListFolderReader reader, String cursor) throws RestException {
+        while (cursor != null) {
+            CursorRequest cursorContent = new CursorRequest();
+            cursorContent.setCursor(cursor);
+            try {
+                cursor = requestPostRequestReader(getUrl(apiUrl + URL_LIST_FOLDER_CONTINUE), cursorContent, reader).execute();
+            } catch (IOException e) {
+                throw new RestException(Messages.exception_dropbox_folder_list_cursor(), e);
+            }
+        }
+    }
+
+    /**
+     * Retrieve metadata with the folder cache, only folders are cached.
+     *
+     * @param absolute absolute path of the file or folder
+     * @return metadata of the file or folder
+     */
+    private Metadata retrieveFolderMetaData(String absolute) throws RestException {
+        FolderMetadata folder = folderCache.get(absolute);
+        if (folder != null) {
+            return folder;
+        }
+        Metadata metadata = retrieveMetaData(absolute);
+        if (metadata instanceof FolderMetadata) {
+            folderCache.put((FolderMetadata) metadata);
+        }
+        return metadata;
     }
 
     @VisibleForTesting
     Metadata retrieveMetaData(String relative) throws RestException {
-        URL url = getUrl(URL_METADATA);
+        URL url = getUrl(apiUrl + URL_METADATA);
         MetadataRequest requestContent = new MetadataRequest();
         String absolute = createAbsolutePath(relative);
         requestContent.setPath(absolute);
@@ -421,6 +1127,8 @@ public class DropboxV2 implements DropboxAdapter {
                 .responseClass(classOfT)
                 .responseErrorClass(ErrorResponse.class)
                 .sign(accessToken)
+                .transport(transport)
+                .rateLimiter(rateLimiter)
                 .timeout(timeout);
 
         return builder.build();
@@ -436,6 +1144,25 @@ public class DropboxV2 implements DropboxAdapter {
                 .responseClass(classOfT)
                 .responseErrorClass(ErrorResponse.class)
                 .sign(accessToken)
+                .transport(transport)
+                .rateLimiter(rateLimiter)
+                .timeout(timeout);
+
+        return builder.build();
+    }
+
+    private <T> JsonObjectRequest<T> requestPostRequestReader(URL url, Object requestContent, JsonObjectRequest.ResponseReader<T> reader) {
+        String content = gson.toJson(requestContent);
+        JsonObjectRequest.Builder<T> builder = new JsonObjectRequest.Builder<T>();
+        builder.url(url)
+                .gson(gson)
+                .method(POST)
+                .upload(content, APPLICATION_JSON)
+                .responseReader(reader)
+                .responseErrorClass(ErrorResponse.class)
+                .sign(accessToken)
+                .transport(transport)
+                .rateLimiter(rateLimiter)
                 .timeout(timeout);
 
         return builder.build();
@@ -452,6 +1179,8 @@ public class DropboxV2 implements DropboxAdapter {
                 .responseClass(responseClass)
                 .responseErrorClass(ErrorResponse.class)
                 .sign(accessToken)
+                .transport(transport)
+                .rateLimiter(rateLimiter)
                 .timeout(timeout);
 
         return builder.build();
@@ -490,9 +1219,21 @@ public class DropboxV2 implements DropboxAdapter {
         return sb.toString();
     }
 
+    /**
+     * Resolve a file name against the current working folder, the result stays valid after the working folder changes.
+     *
+     * @param name name of a file in the working folder
+     * @return absolute path of the file
+     */
+    public String resolvePath(@Nonnull String name) {
+        return createPath(name);
+    }
+
     private String createPath(String name) {
         String path;
-        if (workingFolder.getPathLower().endsWith(PATH_SEPARATOR)) {
+        if (name.startsWith(PATH_SEPARATOR)) {
+            path = name;
+        } else if (workingFolder.getPathLower().endsWith(PATH_SEPARATOR)) {
             path = workingFolder.getPathLower() + name;
         } else {
             path = workingFolder.getPathLower() + PATH_SEPARATOR + name;
@@ -508,12 +1249,7 @@ public class DropboxV2 implements DropboxAdapter {
         if (StringUtils.isEmpty(authorizationCode)) {
             return "";
         }
-        String accessToken = readAccessTokenFromProvider(authorizationCode);
-        if (accessToken == null) {
-            accessToken = readAccessTokenFromWeb(authorizationCode);
-        }
-
-        return accessToken;
+        return readAccessTokenFromWeb(authorizationCode);
     }
 
     private static String readAccessTokenFromWeb(String authorizationCode) throws RestException, UnsupportedEncodingException {
@@ -546,18 +1282,6 @@ public class DropboxV2 implements DropboxAdapter {
         return accessToken;
     }
 
-    private static String readAccessTokenFromProvider(String authorizationCode) {
-        String accessToken = null;
-        List<DropboxToken> tokens = CredentialsProvider.lookupCredentials(DropboxToken.class, Jenkins.getActiveInstance(), null, (DomainRequirement) null);
-        for (DropboxToken token : tokens) {
-            if (token.getAuthorizationCode().equals(authorizationCode)) {
-                accessToken = token.getAccessCode();
-            }
-        }
-
-        return accessToken;
-    }
-
     Metadata getWorkingFolder() {
         return this.workingFolder;
     }
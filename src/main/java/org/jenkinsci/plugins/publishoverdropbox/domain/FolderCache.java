@@ -0,0 +1,88 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import org.jenkinsci.plugins.publishoverdropbox.domain.model.FolderMetadata;
+
+import javax.annotation.Nonnull;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of known remote folders by lower cased path, the least recently used folder is evicted first.
+ */
+class FolderCache {
+
+    private final Map<String, FolderMetadata> folders;
+
+    FolderCache(final int maxSize) {
+        folders = new LinkedHashMap<String, FolderMetadata>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, FolderMetadata> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @param path absolute path of the folder
+     * @return the known folder, or null when it is not cached
+     */
+    synchronized FolderMetadata get(@Nonnull String path) {
+        return folders.get(RemotePaths.normalize(path));
+    }
+
+    synchronized void put(@Nonnull FolderMetadata folder) {
+        if (folder.getPathLower() != null) {
+            folders.put(RemotePaths.normalize(folder.getPathLower()), folder);
+        }
+    }
+
+    /**
+     * Forget a deleted path together with every folder below it.
+     *
+     * @param path absolute path of the deleted file or folder
+     */
+    synchronized void remove(@Nonnull String path) {
+        String removed = RemotePaths.normalize(path);
+        Iterator<String> iterator = folders.keySet().iterator();
+        while (iterator.hasNext()) {
+            String key = iterator.next();
+            if (RemotePaths.isWithin(key, removed)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    synchronized void clear() {
+        folders.clear();
+    }
+
+    synchronized int size() {
+        return folders.size();
+    }
+}
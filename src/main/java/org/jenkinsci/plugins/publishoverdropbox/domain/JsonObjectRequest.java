@@ -27,24 +27,33 @@ package org.jenkinsci.plugins.publishoverdropbox.domain;
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jenkinsci.plugins.publishoverdropbox.domain.model.ErrorResponse;
 import org.jenkinsci.plugins.publishoverdropbox.domain.model.RestException;
+import org.jenkinsci.plugins.publishoverdropbox.domain.transport.HttpTransport;
+import org.jenkinsci.plugins.publishoverdropbox.domain.transport.TransportRequest;
+import org.jenkinsci.plugins.publishoverdropbox.domain.transport.TransportResponse;
+import org.jenkinsci.plugins.publishoverdropbox.domain.transport.UrlConnectionTransport;
 import org.jenkinsci.plugins.publishoverdropbox.impl.Messages;
 
 import javax.annotation.Nonnull;
 import java.io.*;
-import java.net.HttpURLConnection;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
 import java.net.URL;
+import java.net.UnknownHostException;
 import java.util.HashMap;
 import java.util.Map;
 
 public class JsonObjectRequest<T> {
 
-    private static final String HEADER_CONTENT_TYPE = "Content-Type";
+    private static final Log LOG = LogFactory.getLog(JsonObjectRequest.class);
     private static final String UTF_8 = "UTF-8";
-    private static final String OCTET_STREAM = "application/octet-stream";
     private static final String PARAM_AUTHORIZATION = "Authorization";
     private static final String VALUE_BEARER = "Bearer ";
     private static final int TIMEOUT_30_SECONDS = 30000;
+    private static final String HEADER_RETRY_AFTER = "Retry-After";
 
     private URL url;
     private InputStream bodyStream;
@@ -56,9 +65,24 @@ public class JsonObjectRequest<T> {
     private Map<String, String> headers = new HashMap<String, String>();
     private Class classOfError;
     private Method method = Method.GET;
+    private HttpTransport transport = UrlConnectionTransport.getInstance();
+    private ResponseReader<T> responseReader;
+    private RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+    private RateLimiter rateLimiter;
+    private int failedCode;
+    private boolean retryable;
+    private String retryAfter;
+    private ErrorResponse errorResponse;
 
     enum Method {POST, GET, PUT, DELETE}
 
+    /**
+     * Reads the body of a successful response instead of the default Gson model binding.
+     */
+    public interface ResponseReader<T> {
+        T read(Gson gson, Reader reader) throws IOException;
+    }
+
     public static class Builder<T> {
         JsonObjectRequest<T> request;
 
@@ -81,6 +105,11 @@ public class JsonObjectRequest<T> {
             return this;
         }
 
+        public Builder<T> responseReader(ResponseReader<T> responseReader) {
+            request.responseReader = responseReader;
+            return this;
+        }
+
         public Builder<T> responseErrorClass(Class classOfError) {
             request.classOfError = classOfError;
             return this;
@@ -117,6 +146,21 @@ public class JsonObjectRequest<T> {
             return this;
         }
 
+        public Builder<T> transport(@Nonnull HttpTransport transport) {
+            request.transport = transport;
+            return this;
+        }
+
+        public Builder<T> retryPolicy(@Nonnull RetryPolicy retryPolicy) {
+            request.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        public Builder<T> rateLimiter(RateLimiter rateLimiter) {
+            request.rateLimiter = rateLimiter;
+            return this;
+        }
+
         public Builder<T> timeout(int timeout) {
             if (timeout > 1000) {
                 request.timeout = timeout;
@@ -134,88 +178,166 @@ public class JsonObjectRequest<T> {
     private JsonObjectRequest() {
     }
 
+    /**
+     * Execute the request, repeating it while the failure is retryable and the body can be send again. Connections
+     * that could not be opened are retried the same as retryable responses.
+     */
     public T execute() throws RestException {
+        long delay = 0;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return executeOnce();
+            } catch (RestException e) {
+                if (!retryable || attempt >= retryPolicy.getMaxRetries() || !rewindBody()) {
+                    throw e;
+                }
+                delay = retryPolicy.nextDelay(delay, retryAfter, errorResponse);
+                if (delay < 0) {
+                    throw e;
+                }
+                RequestMetrics.getInstance().retry(RequestMetrics.endpoint(url), failedCode);
+                if (rateLimiter != null && failedCode == 429) {
+                    // Other builds with the same token are throttled just as well
+                    rateLimiter.pause(delay);
+                }
+                LOG.info("Retrying " + url + " in " + delay + " ms after " + e.getCause().getMessage());
+                try {
+                    retryPolicy.sleep(delay);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new RestException(Messages.exception_rest_connection(), new InterruptedIOException());
+                }
+            }
+        }
+    }
+
+    private T executeOnce() throws RestException {
+        retryable = false;
+        failedCode = 0;
+        retryAfter = null;
+        errorResponse = null;
         T model = null;
-        HttpURLConnection connection;
+        boolean sent = false;
+        boolean responded = false;
+        long started = 0;
+        int code = 0;
+        long length = 0;
+        TransportResponse response = null;
         InputStream inputStream = null;
         InputStream errorStream = null;
         try {
             // Prepare
-            connection = (HttpURLConnection) url.openConnection();
-            connection.setReadTimeout(timeout);
-            connection.setConnectTimeout(timeout);
+            TransportRequest request = new TransportRequest(url, method.name());
+            request.setTimeout(timeout);
             for (Map.Entry<String, String> entry : headers.entrySet()) {
-                connection.addRequestProperty(entry.getKey(), entry.getValue());
+                request.addHeader(entry.getKey(), entry.getValue());
             }
             if (bearerToken != null) {
-                signWithBearerToken(connection);
+                signWithBearerToken(request);
             }
-            connection.setRequestMethod(method.name());
-            connection.setDoOutput(false);
             boolean responseBody = method == Method.GET || method == Method.POST;
-            connection.setDoInput(responseBody);
 
             // Upload
             if (bodyStream != null) {
-                connection.setDoOutput(true);
-                upload(connection);
+                request.setBody(bodyStream, contentType);
+            }
+            length = Math.max(0, request.getContentLength());
+            if (rateLimiter != null) {
+                rateLimiter.acquire(length);
             }
+            started = System.nanoTime();
+            sent = true;
+            response = transport.execute(request);
+            responded = true;
 
             // Response
-            int responseCode = connection.getResponseCode();
-            String responseMessage = connection.getResponseMessage();
+            int responseCode = response.getCode();
+            code = responseCode;
+            String responseMessage = response.getMessage();
             if (responseCode < 200 || responseCode > 299) {
-                errorStream = connection.getErrorStream();
+                errorStream = response.getBody();
                 Object errorResponse;
                 if (classOfError != null) {
-                    errorResponse = IOUtils.toString(errorStream);
+                    errorResponse = readString(errorStream);
                     try {
-                        errorResponse = readModel(gson, (String) errorResponse, classOfError);
+                        Object errorModel = readModel(gson, (String) errorResponse, classOfError);
+                        if (errorModel != null) {
+                            errorResponse = errorModel;
+                        }
                     } catch (JsonSyntaxException exception) {
                     }
                 } else {
-                    errorResponse = IOUtils.toString(errorStream);
+                    errorResponse = readString(errorStream);
                 }
-                throw new RestException(errorResponse.toString(), new IOException(Messages.exception_rest_http(responseCode, responseMessage)));
+                this.errorResponse = errorResponse instanceof ErrorResponse ? (ErrorResponse) errorResponse : null;
+                retryAfter = response.getHeader(HEADER_RETRY_AFTER);
+                failedCode = responseCode;
+                if (responseCode == 401 && bearerToken != null) {
+                    // The token is revoked or expired, clients should no longer connect with it
+                    AccountCache.getInstance().invalidate(bearerToken);
+                }
+                retryable = retryPolicy.isRetryable(responseCode, this.errorResponse);
+                throw new RestException(errorResponse.toString(), errorResponse, new IOException(Messages.exception_rest_http(responseCode, responseMessage)));
             }
 
             // Download
             if (responseBody) {
-                inputStream = connection.getInputStream();
-                model = readModel(gson, inputStream, classOfT);
+                inputStream = response.getBody();
+                if (responseReader != null) {
+                    model = readModel(gson, inputStream, responseReader);
+                } else {
+                    model = readModel(gson, inputStream, classOfT);
+                }
             }
 
         } catch (IOException e) {
+            if (!responded && isConnectionFailure(e)) {
+                // The request never reached the server, even a request that is not idempotent is sent again
+                retryable = !Thread.currentThread().isInterrupted();
+            }
             throw new RestException(Messages.exception_rest_connection(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RestException(Messages.exception_rest_connection(), new InterruptedIOException());
         } finally {
+            if (sent) {
+                RequestMetrics.getInstance().request(RequestMetrics.endpoint(url), System.nanoTime() - started, length, code);
+            }
+            closeQuietly(bodyStream);
             closeQuietly(errorStream);
             closeQuietly(inputStream);
+            closeQuietly(response);
         }
 
         return model;
     }
 
-    private void upload(HttpURLConnection connection) throws IOException {
-        if (contentType != null) {
-            connection.addRequestProperty(HEADER_CONTENT_TYPE, contentType);
-        } else {
-            // Leaving content type null will result in malformed requests, not setting it will result in an incorrect value
-            connection.addRequestProperty(HEADER_CONTENT_TYPE, OCTET_STREAM);
+    private boolean rewindBody() {
+        if (bodyStream == null) {
+            return true;
         }
-        DataOutputStream outputStream = null;
-        try {
-            OutputStream stream = connection.getOutputStream();
-            outputStream = new DataOutputStream(stream);
-            IOUtils.copyLarge(bodyStream, outputStream);
-            outputStream.flush();
-        } finally {
-            closeQuietly(bodyStream);
-            closeQuietly(outputStream);
+        // Only in-memory bodies can be send again, streamed uploads are retried by their caller
+        if (bodyStream instanceof ByteArrayInputStream) {
+            ((ByteArrayInputStream) bodyStream).reset();
+            return true;
         }
+        return false;
+    }
+
+    private void signWithBearerToken(TransportRequest request) {
+        request.addHeader(PARAM_AUTHORIZATION, VALUE_BEARER + bearerToken);
+    }
+
+    /**
+     * Transports report a connection that could not be opened as one of these, nothing of the request was sent.
+     * Other failures may have reached the server, calls that are not idempotent must not be repeated after them.
+     */
+    private static boolean isConnectionFailure(IOException e) {
+        return e instanceof ConnectException || e instanceof UnknownHostException || e instanceof NoRouteToHostException;
     }
 
-    private void signWithBearerToken(HttpURLConnection connection) {
-        connection.setRequestProperty(PARAM_AUTHORIZATION, VALUE_BEARER + bearerToken);
+    private static String readString(InputStream stream) throws IOException {
+        return stream == null ? "" : IOUtils.toString(stream, UTF_8);
     }
 
     private static <MODEL> MODEL readModel(Gson gson, InputStream inputStream, Class<MODEL> classOfModel) throws IOException {
@@ -232,6 +354,20 @@ public class JsonObjectRequest<T> {
         return model;
     }
 
+    private static <MODEL> MODEL readModel(Gson gson, InputStream inputStream, ResponseReader<MODEL> responseReader) throws IOException {
+        MODEL model = null;
+        if (inputStream != null) {
+            InputStreamReader reader = null;
+            try {
+                reader = new InputStreamReader(new BufferedInputStream(inputStream, 4096), UTF_8);
+                model = responseReader.read(gson, reader);
+            } finally {
+                closeQuietly(reader);
+            }
+        }
+        return model;
+    }
+
     private static <MODEL> MODEL readModel(Gson gson, String jsonData, Class<MODEL> classOfModel) throws IOException {
         MODEL model = null;
         if (jsonData != null) {
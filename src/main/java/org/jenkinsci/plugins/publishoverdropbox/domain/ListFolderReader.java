@@ -0,0 +1,177 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.jenkinsci.plugins.publishoverdropbox.domain.model.DeletedMetadata;
+import org.jenkinsci.plugins.publishoverdropbox.domain.model.FileMetadata;
+import org.jenkinsci.plugins.publishoverdropbox.domain.model.FolderMetadata;
+import org.jenkinsci.plugins.publishoverdropbox.domain.model.Metadata;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Streams a list_folder page to a callback entry by entry, without building the page or a JSON tree in memory.
+ * Reading results in the cursor of the next page, or null when the listing is complete or the callback stopped it.
+ */
+class ListFolderReader implements JsonObjectRequest.ResponseReader<String> {
+
+    private static final String TAG_FILE = "file";
+    private static final String TAG_FOLDER = "folder";
+    private static final String TAG_DELETED = "deleted";
+
+    private final MetadataCallback callback;
+    private String latestCursor;
+    private boolean stopped;
+
+    ListFolderReader(@Nonnull MetadataCallback callback) {
+        this.callback = callback;
+    }
+
+    @Override
+    public String read(Gson gson, Reader source) throws IOException {
+        String cursor = null;
+        boolean hasMore = false;
+        JsonReader reader = new JsonReader(source);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if ("entries".equals(field)) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    if (stopped) {
+                        reader.skipValue();
+                        continue;
+                    }
+                    Metadata entry = readEntry(reader);
+                    if (entry != null && !callback.onEntry(entry)) {
+                        stopped = true;
+                    }
+                }
+                reader.endArray();
+            } else if ("cursor".equals(field)) {
+                cursor = nextString(reader);
+            } else if ("has_more".equals(field)) {
+                hasMore = reader.nextBoolean();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (stopped) {
+            // The listing is incomplete, neither its next page nor its changes are of use
+            latestCursor = null;
+            return null;
+        }
+        latestCursor = cursor;
+
+        return hasMore ? cursor : null;
+    }
+
+    /**
+     * @return cursor of the last page read, continuing from it lists the changes made after the listing, or null
+     * when the callback stopped the listing
+     */
+    String getLatestCursor() {
+        return latestCursor;
+    }
+
+    /**
+     * @return the file, folder or deleted entry, or null for unknown entries
+     */
+    private static Metadata readEntry(JsonReader reader) throws IOException {
+        String tag = null;
+        String name = null;
+        String id = null;
+        String pathLower = null;
+        String pathDisplay = null;
+        long size = 0;
+        String serverModified = null;
+        String clientModified = null;
+        String contentHash = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if (".tag".equals(field)) {
+                tag = nextString(reader);
+            } else if ("name".equals(field)) {
+                name = nextString(reader);
+            } else if ("id".equals(field)) {
+                id = nextString(reader);
+            } else if ("path_lower".equals(field)) {
+                pathLower = nextString(reader);
+            } else if ("path_display".equals(field)) {
+                pathDisplay = nextString(reader);
+            } else if ("size".equals(field)) {
+                size = reader.nextLong();
+            } else if ("server_modified".equals(field)) {
+                serverModified = nextString(reader);
+            } else if ("client_modified".equals(field)) {
+                clientModified = nextString(reader);
+            } else if ("content_hash".equals(field)) {
+                contentHash = nextString(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        final Metadata entry;
+        if (TAG_FILE.equals(tag)) {
+            FileMetadata file = new FileMetadata();
+            file.setServerModified(serverModified);
+            file.setClientModified(clientModified);
+            file.setContentHash(contentHash);
+            entry = file;
+        } else if (TAG_FOLDER.equals(tag)) {
+            entry = new FolderMetadata();
+        } else if (TAG_DELETED.equals(tag)) {
+            entry = new DeletedMetadata();
+        } else {
+            return null;
+        }
+        entry.setTag(tag);
+        entry.setName(name);
+        entry.setId(id);
+        entry.setPathLower(pathLower);
+        entry.setPathDisplay(pathDisplay);
+        entry.setSize(size);
+
+        return entry;
+    }
+
+    private static String nextString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+}
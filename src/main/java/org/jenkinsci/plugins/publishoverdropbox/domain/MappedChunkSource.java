@@ -0,0 +1,137 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Chunks of a local file read through a memory mapped view of each chunk, without copying through a stream.
+ * <p>
+ * A mapped view is only released once it is garbage collected, closing the source does not unmap it. Use
+ * {@link #open(File)} so that small files, for which mapping costs more than it saves, are streamed instead.
+ */
+public class MappedChunkSource implements ChunkSource {
+
+    /**
+     * Files up to a single default chunk are read through a stream.
+     */
+    static final long MIN_MAPPED_SIZE = 4 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long length;
+    private final String identity;
+    private long position;
+
+    public MappedChunkSource(@Nonnull File file) throws IOException {
+        channel = new FileInputStream(file).getChannel();
+        length = channel.size();
+        identity = UploadJournal.identify(file.getAbsolutePath(), length, file.lastModified());
+    }
+
+    /**
+     * @return a mapped source for large files, a stream source for files up to {@link #MIN_MAPPED_SIZE}
+     */
+    public static ChunkSource open(@Nonnull File file) throws IOException {
+        long length = file.length();
+        if (length > MIN_MAPPED_SIZE) {
+            return new MappedChunkSource(file);
+        }
+        String identity = UploadJournal.identify(file.getAbsolutePath(), length, file.lastModified());
+        return new StreamChunkSource(new FileInputStream(file), length, identity);
+    }
+
+    @Override
+    public long getLength() {
+        return length;
+    }
+
+    @Override
+    public String getIdentity() {
+        return identity;
+    }
+
+    @Override
+    public void skip(long count) {
+        position = Math.min(length, position + count);
+    }
+
+    @Override
+    public InputStream nextChunk(long size) throws IOException {
+        long chunk = Math.max(0, Math.min(size, length - position));
+        ByteBuffer view = channel.map(FileChannel.MapMode.READ_ONLY, position, chunk);
+        position += chunk;
+        return new ByteBufferInputStream(view);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int read = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, read);
+            return read;
+        }
+
+        @Override
+        public long skip(long count) {
+            int skipped = (int) Math.max(0, Math.min(count, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+
+/**
+ * In-memory index of one recursive listing of a mirrored folder. The files of a transfer are marked as kept, the
+ * files and folders that are not kept are removed from the mirror.
+ */
+public class MirrorIndex {
+
+    private static final String PATH_SEPARATOR = "/";
+
+    private final String root;
+    private final Map<String, Long> files = new HashMap<String, Long>();
+    private final Set<String> folders = new HashSet<String>();
+    private final Set<String> kept = new HashSet<String>();
+
+    MirrorIndex(@Nonnull String root) {
+        this.root = RemotePaths.normalize(root);
+    }
+
+    /**
+     * @return the path of the mirrored folder
+     */
+    public String getRoot() {
+        return root;
+    }
+
+    synchronized void addFolder(@Nonnull String pathLower) {
+        String path = RemotePaths.normalize(pathLower);
+        if (isBelowRoot(path)) {
+            folders.add(path);
+        }
+    }
+
+    synchronized void addFile(@Nonnull String pathLower, long size) {
+        String path = RemotePaths.normalize(pathLower);
+        if (isBelowRoot(path)) {
+            files.put(path, size);
+        }
+    }
+
+    /**
+     * @param path path of a file
+     * @param size size of the local file in bytes
+     * @return true when the mirror holds a file of the same size at the path
+     */
+    public synchronized boolean hasFile(@Nonnull String path, long size) {
+        Long stored = files.get(RemotePaths.normalize(path));
+        return stored != null && stored == size;
+    }
+
+    /**
+     * Keep a file and the folders that lead to it in the mirror.
+     *
+     * @param path path of a transferred file
+     */
+    public synchronized void keep(@Nonnull String path) {
+        String entry = RemotePaths.normalize(path);
+        while (isBelowRoot(entry) && kept.add(entry)) {
+            entry = parentOf(entry);
+        }
+    }
+
+    /**
+     * @return the files and folders that are not kept, a folder that is removed as a whole hides its content
+     */
+    public synchronized List<String> getDeletions() {
+        Set<String> sorted = new TreeSet<String>(folders);
+        sorted.addAll(files.keySet());
+        List<String> deletions = new ArrayList<String>();
+        Set<String> deletedFolders = new HashSet<String>();
+        // Sorted paths list a folder before its content
+        for (String path : sorted) {
+            if (kept.contains(path) || isBelowDeleted(path, deletedFolders)) {
+                continue;
+            }
+            deletions.add(path);
+            if (folders.contains(path)) {
+                deletedFolders.add(path);
+            }
+        }
+        return deletions;
+    }
+
+    private boolean isBelowDeleted(String path, Set<String> deletedFolders) {
+        String folder = parentOf(path);
+        while (isBelowRoot(folder)) {
+            if (deletedFolders.contains(folder)) {
+                return true;
+            }
+            folder = parentOf(folder);
+        }
+        return false;
+    }
+
+    private boolean isBelowRoot(String path) {
+        return path.length() > root.length() && path.startsWith(root + PATH_SEPARATOR);
+    }
+
+    private static String parentOf(String path) {
+        int index = path.lastIndexOf(PATH_SEPARATOR);
+        return index > 0 ? path.substring(0, index) : "";
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip compression on all cores. The data is cut in blocks that are deflated concurrently, each block becomes a
+ * gzip member and the members are written in order. Readers of gzip, like {@link java.util.zip.GZIPInputStream},
+ * read the concatenated members as one stream.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+    static final int BLOCK_SIZE = 256 * 1024;
+
+    private final OutputStream out;
+    private final ExecutorService executor;
+    private final int maxPending;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>>();
+    private byte[] block = new byte[BLOCK_SIZE];
+    private int count;
+    private boolean hasMembers;
+    private boolean closed;
+
+    public ParallelGzipOutputStream(@Nonnull OutputStream out) {
+        this(out, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param out     receives the compressed data
+     * @param threads number of blocks deflated at the same time
+     */
+    public ParallelGzipOutputStream(@Nonnull OutputStream out, int threads) {
+        int workers = Math.max(1, threads);
+        this.out = out;
+        this.executor = Executors.newFixedThreadPool(workers);
+        // One block waiting per worker keeps the workers busy while the oldest block is written
+        this.maxPending = 2 * workers;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        block[count++] = (byte) b;
+        if (count == BLOCK_SIZE) {
+            submitBlock();
+        }
+    }
+
+    @Override
+    public void write(@Nonnull byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            int size = Math.min(length, BLOCK_SIZE - count);
+            System.arraycopy(bytes, offset, block, count, size);
+            count += size;
+            offset += size;
+            length -= size;
+            if (count == BLOCK_SIZE) {
+                submitBlock();
+            }
+        }
+    }
+
+    /**
+     * Flushes the compressed blocks, the partially filled block stays buffered to keep the blocks large.
+     */
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (count > 0 || !hasMembers) {
+                // An empty stream still needs one member to be valid gzip
+                submitBlock();
+            }
+            while (!pending.isEmpty()) {
+                writeOldest();
+            }
+            out.close();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        final byte[] data = block;
+        final int length = count;
+        pending.add(executor.submit(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws IOException {
+                return deflate(data, length);
+            }
+        }));
+        hasMembers = true;
+        block = new byte[BLOCK_SIZE];
+        count = 0;
+        while (pending.size() >= maxPending) {
+            writeOldest();
+        }
+    }
+
+    private void writeOldest() throws IOException {
+        try {
+            out.write(pending.removeFirst().get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            executor.shutdownNow();
+            throw new IOException(e.getCause());
+        } catch (IOException e) {
+            executor.shutdownNow();
+            throw e;
+        }
+    }
+
+    static byte[] deflate(byte[] data, int length) throws IOException {
+        ByteArrayOutputStream member = new ByteArrayOutputStream(length / 2 + 64);
+        GZIPOutputStream gzip = new GZIPOutputStream(member);
+        gzip.write(data, 0, length);
+        gzip.close();
+        return member.toByteArray();
+    }
+}
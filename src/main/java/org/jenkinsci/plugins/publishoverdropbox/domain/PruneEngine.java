@@ -0,0 +1,331 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jenkinsci.plugins.publishoverdropbox.domain.model.DeletedMetadata;
+import org.jenkinsci.plugins.publishoverdropbox.domain.model.FileMetadata;
+import org.jenkinsci.plugins.publishoverdropbox.domain.model.FolderMetadata;
+import org.jenkinsci.plugins.publishoverdropbox.domain.model.Metadata;
+import org.jenkinsci.plugins.publishoverdropbox.domain.model.RestException;
+import org.jenkinsci.plugins.publishoverdropbox.impl.Messages;
+
+import javax.annotation.Nonnull;
+import java.io.InterruptedIOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Prunes the children of a folder that have not been modified since a cutoff. The subtrees of sibling folders are
+ * listed concurrently on a bounded fork/join pool and the listing of a subtree stops at its first newer file. Prunable
+ * children are queued and deleted in batches while the other subtrees are still evaluated.
+ * <p>
+ * With a {@link PruneState} the children and their known modifications are kept between prunes. A later prune reads
+ * only the changes since the previous one and lists just the subtrees of folders whose known modification fell behind
+ * the cutoff.
+ */
+class PruneEngine {
+
+    private static final Log LOG = LogFactory.getLog(PruneEngine.class);
+    private static final long POLL_MILLIS = 100;
+    private static final String PATH_SEPARATOR = "/";
+    private static final long NOTHING_KNOWN = Long.MIN_VALUE;
+
+    private final DropboxV2 dropbox;
+    private final Date cutoff;
+    private final int workers;
+    private final int batchSize;
+    private final PruneState state;
+    private final Map<String, Long> files = new HashMap<String, Long>();
+    private final ConcurrentMap<String, Long> folders = new ConcurrentHashMap<String, Long>();
+    private final BlockingQueue<String> deletions = new LinkedBlockingQueue<String>();
+    private final AtomicReference<RestException> failure = new AtomicReference<RestException>();
+
+    /**
+     * @param dropbox   client to list and delete with, its requests share the budget of the token
+     * @param cutoff    moment before which entries are considered old
+     * @param workers   maximum number of subtrees listed at the same time
+     * @param batchSize number of queued deletions that are send in one batch
+     * @param state     state of earlier prunes, or null to list the folder completely every time
+     */
+    PruneEngine(@Nonnull DropboxV2 dropbox, @Nonnull Date cutoff, int workers, int batchSize, PruneState state) {
+        this.dropbox = dropbox;
+        this.cutoff = cutoff;
+        this.workers = Math.max(1, workers);
+        this.batchSize = Math.max(1, batchSize);
+        this.state = state;
+    }
+
+    /**
+     * @param folder absolute path of the folder to prune
+     * @return paths of the deleted children
+     */
+    List<String> prune(@Nonnull String folder) throws RestException {
+        String root = folder.toLowerCase(Locale.ENGLISH);
+        if (root.endsWith(PATH_SEPARATOR)) {
+            root = root.substring(0, root.length() - 1);
+        }
+        PruneState.Entry entry = readChanges(root);
+        if (entry == null) {
+            entry = listChildren(root);
+        }
+
+        for (Map.Entry<String, Long> file : files.entrySet()) {
+            if (file.getValue() <= cutoff.getTime()) {
+                deletions.add(file.getKey());
+            }
+        }
+        List<SubtreeTask> tasks = new ArrayList<SubtreeTask>();
+        for (Map.Entry<String, Long> child : folders.entrySet()) {
+            if (child.getValue() <= cutoff.getTime()) {
+                tasks.add(new SubtreeTask(child.getKey()));
+            }
+        }
+        List<String> deleted = evaluate(tasks);
+
+        if (entry != null) {
+            files.keySet().removeAll(deleted);
+            folders.keySet().removeAll(deleted);
+            entry.getFiles().clear();
+            entry.getFiles().putAll(files);
+            entry.getFolders().clear();
+            entry.getFolders().putAll(folders);
+            state.save(entry);
+        }
+
+        return deleted;
+    }
+
+    /**
+     * @return the state updated with the changes since the previous prune, or null when there is none
+     */
+    private PruneState.Entry readChanges(final String root) {
+        PruneState.Entry entry = state == null ? null : state.find(root);
+        if (entry == null) {
+            return null;
+        }
+        files.putAll(entry.getFiles());
+        folders.putAll(entry.getFolders());
+        try {
+            entry.setCursor(dropbox.listFolderChanges(entry.getCursor(), new MetadataCallback() {
+                @Override
+                public boolean onEntry(@Nonnull Metadata entry) throws RestException {
+                    applyChange(root, entry);
+                    return true;
+                }
+            }));
+        } catch (RestException e) {
+            // An expired or reset cursor, the changes are unknown
+            LOG.info("Reading the changes below " + root + " failed, listing it again: " + e.getMessage());
+            files.clear();
+            folders.clear();
+            entry = null;
+        }
+        return entry;
+    }
+
+    /**
+     * @return a new state of the root, or null when no state is kept
+     */
+    private PruneState.Entry listChildren(String root) throws RestException {
+        // Marked before the listing, changes made while pruning are read by the next prune
+        String cursor = state == null ? null : dropbox.getLatestCursor(root, true);
+        dropbox.listFolder(root, false, new MetadataCallback() {
+            @Override
+            public boolean onEntry(@Nonnull Metadata entry) throws RestException {
+                if (entry instanceof FileMetadata) {
+                    files.put(entry.getPathLower(), modifiedOf((FileMetadata) entry));
+                } else if (entry instanceof FolderMetadata) {
+                    folders.put(entry.getPathLower(), NOTHING_KNOWN);
+                }
+                return true;
+            }
+        });
+        return cursor == null ? null : new PruneState.Entry(root, cursor);
+    }
+
+    private void applyChange(String root, Metadata entry) throws RestException {
+        String path = entry.getPathLower();
+        if (path == null || !path.startsWith(root + PATH_SEPARATOR)) {
+            return;
+        }
+        int end = path.indexOf(PATH_SEPARATOR, root.length() + 1);
+        String child = end < 0 ? path : path.substring(0, end);
+        if (entry instanceof DeletedMetadata) {
+            // A removed file below a folder leaves the known modification, it only delays the prune of the folder
+            if (end < 0) {
+                files.remove(child);
+                folders.remove(child);
+            }
+        } else if (entry instanceof FileMetadata) {
+            long modified = modifiedOf((FileMetadata) entry);
+            if (end < 0) {
+                folders.remove(child);
+                files.put(child, modified);
+            } else {
+                files.remove(child);
+                Long known = folders.get(child);
+                if (known == null || known < modified) {
+                    folders.put(child, modified);
+                }
+            }
+        } else if (entry instanceof FolderMetadata) {
+            files.remove(child);
+            if (!folders.containsKey(child)) {
+                folders.put(child, NOTHING_KNOWN);
+            }
+        }
+    }
+
+    private List<String> evaluate(List<SubtreeTask> tasks) throws RestException {
+        List<String> deleted = new ArrayList<String>();
+        List<String> batch = new ArrayList<String>();
+        if (tasks.isEmpty()) {
+            deleteQueued(batch, deleted);
+            return deleted;
+        }
+        ForkJoinPool pool = new ForkJoinPool(Math.min(workers, tasks.size()), new PruneThreadFactory(), null, false);
+        try {
+            ForkJoinTask<?> evaluation = pool.submit(new SiblingsTask(tasks));
+            while (!evaluation.isDone()) {
+                String path = deletions.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (path != null) {
+                    batch.add(path);
+                    deletions.drainTo(batch, batchSize - batch.size());
+                }
+                if (batch.size() >= batchSize) {
+                    delete(batch, deleted);
+                }
+            }
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+            deleteQueued(batch, deleted);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RestException(Messages.exception_rest_connection(), new InterruptedIOException());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        return deleted;
+    }
+
+    private void deleteQueued(List<String> batch, List<String> deleted) throws RestException {
+        do {
+            deletions.drainTo(batch, batchSize - batch.size());
+            delete(batch, deleted);
+        } while (!deletions.isEmpty());
+    }
+
+    private void delete(List<String> batch, List<String> deleted) throws RestException {
+        if (!batch.isEmpty()) {
+            dropbox.deleteBatch(batch);
+            deleted.addAll(batch);
+            batch.clear();
+        }
+    }
+
+    private long modifiedOf(FileMetadata file) throws RestException {
+        return dropbox.parseDate(file.getServerModified()).getTime();
+    }
+
+    /**
+     * Evaluates the subtrees of the siblings in parallel.
+     */
+    private static class SiblingsTask extends RecursiveAction {
+
+        private final List<SubtreeTask> tasks;
+
+        SiblingsTask(List<SubtreeTask> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected void compute() {
+            invokeAll(tasks);
+        }
+    }
+
+    /**
+     * Queues a folder for deletion when its recursive listing holds no newer file.
+     */
+    private class SubtreeTask extends RecursiveAction {
+
+        private final String folder;
+
+        SubtreeTask(String folder) {
+            this.folder = folder;
+        }
+
+        @Override
+        protected void compute() {
+            if (failure.get() != null) {
+                // The prune is failing, evaluating more subtrees is of no use
+                return;
+            }
+            final AtomicBoolean newer = new AtomicBoolean();
+            try {
+                dropbox.listFolder(folder, true, new MetadataCallback() {
+                    @Override
+                    public boolean onEntry(@Nonnull Metadata entry) throws RestException {
+                        if (entry instanceof FileMetadata) {
+                            long modified = modifiedOf((FileMetadata) entry);
+                            if (modified > cutoff.getTime()) {
+                                folders.put(folder, modified);
+                                newer.set(true);
+                                // Stop reading the listing, the remaining pages are not requested
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                });
+                if (!newer.get()) {
+                    deletions.add(folder);
+                }
+            } catch (RestException e) {
+                failure.compareAndSet(null, e);
+            }
+        }
+    }
+
+    private static class PruneThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+        private static final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("Dropbox prune #" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
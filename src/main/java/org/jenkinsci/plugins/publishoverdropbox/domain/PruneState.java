@@ -0,0 +1,156 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import hudson.FilePath;
+import hudson.Util;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Persists what a prune learned about the children of a prune root, together with the cursor of its listing. The next
+ * prune of the same root only reads the changes since that cursor instead of listing the whole root again. Each prune
+ * root has its own state file.
+ */
+public class PruneState {
+
+    private static final Log LOG = LogFactory.getLog(PruneState.class);
+    private static final String UTF_8 = "UTF-8";
+    private static final String EXTENSION = ".json";
+
+    private final FilePath directory;
+    private transient Gson gson;
+
+    public PruneState(@Nonnull FilePath directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @param root absolute Dropbox path of the prune root
+     * @return the state of the previous prune, or null when the root has to be listed completely
+     */
+    public synchronized Entry find(@Nonnull String root) {
+        FilePath file = fileOf(root);
+        Entry entry = null;
+        try {
+            if (file.exists()) {
+                entry = getGson().fromJson(file.readToString(), Entry.class);
+                if (entry == null || !root.equalsIgnoreCase(entry.root) || entry.cursor == null || entry.files == null || entry.folders == null) {
+                    // Written for another root or by an incomplete save
+                    entry = null;
+                    file.delete();
+                }
+            }
+        } catch (IOException | InterruptedException | JsonSyntaxException e) {
+            LOG.warn("Failed to read prune state of " + root, e);
+            entry = null;
+        }
+        return entry;
+    }
+
+    public synchronized void save(@Nonnull Entry entry) {
+        try {
+            directory.mkdirs();
+            fileOf(entry.root).write(getGson().toJson(entry), UTF_8);
+        } catch (IOException | InterruptedException e) {
+            LOG.warn("Failed to write prune state of " + entry.root, e);
+        }
+    }
+
+    public synchronized void remove(@Nonnull String root) {
+        try {
+            fileOf(root).delete();
+        } catch (IOException | InterruptedException e) {
+            LOG.warn("Failed to remove prune state of " + root, e);
+        }
+    }
+
+    private FilePath fileOf(String root) {
+        return directory.child(Util.getDigestOf(root.toLowerCase(Locale.ENGLISH)) + EXTENSION);
+    }
+
+    private Gson getGson() {
+        if (gson == null) {
+            gson = new Gson();
+        }
+        return gson;
+    }
+
+    /**
+     * The children of one prune root. Files are kept with their modification, folders with the modification of a
+     * file seen below them. A folder modification is a lower bound of its newest file, removed files are not taken
+     * into account and a folder is only pruned after its subtree is evaluated again.
+     */
+    public static class Entry {
+        private String root;
+        private String cursor;
+        private Map<String, Long> files = new HashMap<String, Long>();
+        private Map<String, Long> folders = new HashMap<String, Long>();
+
+        public Entry(@Nonnull String root, @Nonnull String cursor) {
+            this.root = root;
+            this.cursor = cursor;
+        }
+
+        public String getRoot() {
+            return root;
+        }
+
+        /**
+         * @return cursor to list the changes below the root since the state was taken
+         */
+        public String getCursor() {
+            return cursor;
+        }
+
+        public void setCursor(@Nonnull String cursor) {
+            this.cursor = cursor;
+        }
+
+        /**
+         * @return modification time in milliseconds of each file directly in the root
+         */
+        public Map<String, Long> getFiles() {
+            return files;
+        }
+
+        /**
+         * @return time in milliseconds of a known modification below each folder directly in the root, or
+         * {@link Long#MIN_VALUE} when nothing below the folder is known
+         */
+        public Map<String, Long> getFolders() {
+            return folders;
+        }
+    }
+}
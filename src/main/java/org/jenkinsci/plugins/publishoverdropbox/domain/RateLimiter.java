@@ -0,0 +1,186 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import javax.annotation.Nonnull;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token buckets for the requests and uploaded bytes of one Dropbox token, shared by every build in the JVM. Waiting
+ * requests are admitted in arrival order, so concurrent builds get a fair share instead of racing into rate limits.
+ * A rate of zero or less means unlimited.
+ */
+public class RateLimiter {
+
+    private static final long ONE_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final Map<String, RateLimiter> limiters = new HashMap<String, RateLimiter>();
+
+    private final ReentrantLock queue = new ReentrantLock(true);
+    private final Bucket requests = new Bucket();
+    private final Bucket bytes = new Bucket();
+    private final Map<String, double[]> rates = new HashMap<String, double[]>();
+    private long pausedUntil;
+
+    /**
+     * Lookup the limiter of a token, the strictest rates of the configurations using the token apply.
+     *
+     * @param tokenId id of the Dropbox token credentials
+     * @return the shared limiter
+     */
+    public static synchronized RateLimiter forToken(@Nonnull String tokenId) {
+        RateLimiter limiter = limiters.get(tokenId);
+        if (limiter == null) {
+            limiter = new RateLimiter();
+            limiters.put(tokenId, limiter);
+        }
+        return limiter;
+    }
+
+    /**
+     * Set the rates of one configuration using the token, the lowest limited rate of all its configurations applies.
+     *
+     * @param configuration name of the host configuration
+     */
+    public synchronized void setRates(@Nonnull String configuration, double requestsPerSecond, double bytesPerSecond) {
+        rates.put(configuration, new double[]{requestsPerSecond, bytesPerSecond});
+        double strictestRequests = 0;
+        double strictestBytes = 0;
+        for (double[] rate : rates.values()) {
+            strictestRequests = strictest(strictestRequests, rate[0]);
+            strictestBytes = strictest(strictestBytes, rate[1]);
+        }
+        long now = nanoTime();
+        requests.setRate(strictestRequests, now);
+        bytes.setRate(strictestBytes, now);
+    }
+
+    /**
+     * @return requests per second that apply to the token, 0 for unlimited
+     */
+    public synchronized double getRequestsPerSecond() {
+        return requests.rate;
+    }
+
+    /**
+     * @return uploaded bytes per second that apply to the token, 0 for unlimited
+     */
+    public synchronized double getBytesPerSecond() {
+        return bytes.rate;
+    }
+
+    /**
+     * Wait until the budgets allow another request.
+     *
+     * @param length number of bytes the request uploads
+     */
+    public void acquire(long length) throws InterruptedException {
+        queue.lockInterruptibly();
+        try {
+            long wait = reserve(length);
+            while (wait > 0) {
+                sleepNanos(wait);
+                wait = reserve(length);
+            }
+        } finally {
+            queue.unlock();
+        }
+    }
+
+    /**
+     * Hold back all requests of the token, used when Dropbox asks to back off.
+     */
+    public synchronized void pause(long millis) {
+        pausedUntil = Math.max(pausedUntil, nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    /**
+     * @return nanoseconds to wait, or 0 when the request was admitted
+     */
+    private synchronized long reserve(long length) {
+        long now = nanoTime();
+        long wait = Math.max(pausedUntil - now, Math.max(requests.waitTime(now), bytes.waitTime(now)));
+        if (wait > 0) {
+            return wait;
+        }
+        requests.take(1);
+        bytes.take(Math.max(0, length));
+        return 0;
+    }
+
+    private static double strictest(double rate, double other) {
+        if (rate <= 0) {
+            return other;
+        }
+        return other <= 0 ? rate : Math.min(rate, other);
+    }
+
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+
+    protected void sleepNanos(long nanos) throws InterruptedException {
+        TimeUnit.NANOSECONDS.sleep(nanos);
+    }
+
+    /**
+     * Holds up to one second of budget. Requests larger than the budget are admitted when it is not in debt and are
+     * paid back by the requests after them.
+     */
+    private static class Bucket {
+        private double rate;
+        private double available;
+        private long updated;
+
+        void setRate(double rate, long now) {
+            refill(now);
+            this.rate = rate;
+            available = Math.min(available, Math.max(rate, 0));
+        }
+
+        long waitTime(long now) {
+            refill(now);
+            if (rate <= 0 || available >= 0) {
+                return 0;
+            }
+            return (long) Math.ceil(-available * ONE_SECOND / rate);
+        }
+
+        void take(long amount) {
+            if (rate > 0) {
+                available -= amount;
+            }
+        }
+
+        private void refill(long now) {
+            if (rate > 0 && now > updated) {
+                available = Math.min(rate, available + (now - updated) * rate / ONE_SECOND);
+            }
+            updated = now;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import javax.annotation.Nonnull;
+import java.util.Locale;
+
+/**
+ * Comparison of remote paths, Dropbox paths are case insensitive and the indexes of remote folders key them by their
+ * lower cased form.
+ */
+final class RemotePaths {
+
+    private static final String PATH_SEPARATOR = "/";
+
+    private RemotePaths() {
+    }
+
+    /**
+     * @param path path of a remote file or folder
+     * @return the lower cased path without a trailing separator, the root folder is an empty path
+     */
+    static String normalize(@Nonnull String path) {
+        String normalized = path.toLowerCase(Locale.ENGLISH);
+        if (normalized.endsWith(PATH_SEPARATOR)) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        return normalized;
+    }
+
+    /**
+     * @param path   normalized path of a file or folder
+     * @param folder normalized path of a folder
+     * @return true when the path is the folder itself or lies below it
+     */
+    static boolean isWithin(@Nonnull String path, @Nonnull String folder) {
+        return folder.isEmpty() || path.equals(folder) || path.startsWith(folder + PATH_SEPARATOR);
+    }
+}
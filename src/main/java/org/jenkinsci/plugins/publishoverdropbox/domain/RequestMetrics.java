@@ -0,0 +1,189 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import javax.annotation.Nonnull;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * JVM wide measurements of the Dropbox API requests by endpoint, together with the throughput of uploaded chunks.
+ * Listeners receive every measurement, which is how the Jenkins Metrics plugin gets them when it is installed.
+ */
+public class RequestMetrics {
+
+    /**
+     * Upper bounds in milliseconds of the latency histogram buckets, slower requests land in an extra last bucket.
+     */
+    public static final long[] LATENCY_BUCKETS = {10, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000};
+    public static final String CHUNKS = "chunks";
+
+    private static final String API_PREFIX = "/2/";
+    private static final RequestMetrics instance = new RequestMetrics();
+
+    private final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentHashMap<String, Endpoint>();
+    private final AtomicLong chunkBytes = new AtomicLong();
+    private final AtomicLong chunkNanos = new AtomicLong();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+    public interface Listener {
+
+        /**
+         * @param code HTTP status code, 0 when no response was received
+         */
+        void onRequest(String endpoint, long nanos, long bytes, int code);
+
+        void onRetry(String endpoint, int code);
+
+        void onChunk(long bytes, long nanos);
+    }
+
+    public static RequestMetrics getInstance() {
+        return instance;
+    }
+
+    public void addListener(@Nonnull Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(@Nonnull Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return endpoint of a Dropbox API url, for example files/list_folder
+     */
+    public static String endpoint(URL url) {
+        String path = url == null ? "" : url.getPath();
+        return path.startsWith(API_PREFIX) ? path.substring(API_PREFIX.length()) : path;
+    }
+
+    void request(String endpoint, long nanos, long bytes, int code) {
+        endpoint(endpoint).request(nanos, bytes, code);
+        for (Listener listener : listeners) {
+            listener.onRequest(endpoint, nanos, bytes, code);
+        }
+    }
+
+    void retry(String endpoint, int code) {
+        endpoint(endpoint).retry(code);
+        for (Listener listener : listeners) {
+            listener.onRetry(endpoint, code);
+        }
+    }
+
+    void chunk(long bytes, long nanos) {
+        chunkBytes.addAndGet(bytes);
+        chunkNanos.addAndGet(nanos);
+        for (Listener listener : listeners) {
+            listener.onChunk(bytes, nanos);
+        }
+    }
+
+    /**
+     * @return statistics of every endpoint that received a request
+     */
+    public Map<String, RequestStatistics> getStatistics() {
+        Map<String, RequestStatistics> statistics = new HashMap<String, RequestStatistics>();
+        for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+            statistics.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return statistics;
+    }
+
+    /**
+     * @return average upload speed of chunks in bytes per second, 0 before the first chunk
+     */
+    public long getChunkThroughput() {
+        long nanos = chunkNanos.get();
+        return nanos == 0 ? 0 : (long) (chunkBytes.get() * 1e9 / nanos);
+    }
+
+    void reset() {
+        endpoints.clear();
+        chunkBytes.set(0);
+        chunkNanos.set(0);
+    }
+
+    private Endpoint endpoint(String name) {
+        Endpoint endpoint = endpoints.get(name);
+        if (endpoint == null) {
+            endpoints.putIfAbsent(name, new Endpoint());
+            endpoint = endpoints.get(name);
+        }
+        return endpoint;
+    }
+
+    private static class Endpoint {
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong retries = new AtomicLong();
+        private final AtomicLong rateLimited = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong nanos = new AtomicLong();
+        private final AtomicLongArray latencies = new AtomicLongArray(LATENCY_BUCKETS.length + 1);
+
+        void request(long duration, long length, int code) {
+            requests.incrementAndGet();
+            if (code < 200 || code > 299) {
+                errors.incrementAndGet();
+            }
+            bytes.addAndGet(length);
+            nanos.addAndGet(duration);
+            latencies.incrementAndGet(bucket(TimeUnit.NANOSECONDS.toMillis(duration)));
+        }
+
+        void retry(int code) {
+            retries.incrementAndGet();
+            if (code == 429) {
+                rateLimited.incrementAndGet();
+            }
+        }
+
+        RequestStatistics snapshot() {
+            long[] histogram = new long[latencies.length()];
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] = latencies.get(i);
+            }
+            return new RequestStatistics(requests.get(), errors.get(), retries.get(), rateLimited.get(), bytes.get(), nanos.get(), histogram);
+        }
+
+        private static int bucket(long millis) {
+            int i = 0;
+            while (i < LATENCY_BUCKETS.length && millis > LATENCY_BUCKETS[i]) {
+                i++;
+            }
+            return i;
+        }
+    }
+}
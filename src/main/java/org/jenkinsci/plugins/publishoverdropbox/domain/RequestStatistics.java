@@ -0,0 +1,105 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot of the requests to one Dropbox API endpoint, see {@link RequestMetrics}.
+ */
+public class RequestStatistics {
+
+    private final long requests;
+    private final long errors;
+    private final long retries;
+    private final long rateLimited;
+    private final long bytes;
+    private final long nanos;
+    private final long[] latencies;
+
+    public RequestStatistics(long requests, long errors, long retries, long rateLimited, long bytes, long nanos, long[] latencies) {
+        this.requests = requests;
+        this.errors = errors;
+        this.retries = retries;
+        this.rateLimited = rateLimited;
+        this.bytes = bytes;
+        this.nanos = nanos;
+        this.latencies = latencies;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    /**
+     * @return requests without a successful response, including the ones that were retried
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getRetries() {
+        return retries;
+    }
+
+    /**
+     * @return retries caused by a 429 response
+     */
+    public long getRateLimited() {
+        return rateLimited;
+    }
+
+    /**
+     * @return uploaded bytes
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getAverageMillis() {
+        return requests == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(nanos / requests);
+    }
+
+    /**
+     * @return request counts by the buckets of {@link RequestMetrics#LATENCY_BUCKETS}
+     */
+    public long[] getLatencies() {
+        return latencies.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "RequestStatistics{" +
+                "requests=" + requests +
+                ", errors=" + errors +
+                ", retries=" + retries +
+                ", rateLimited=" + rateLimited +
+                ", bytes=" + bytes +
+                ", averageMillis=" + getAverageMillis() +
+                ", latencies=" + Arrays.toString(latencies) +
+                '}';
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import org.jenkinsci.plugins.publishoverdropbox.domain.model.ErrorResponse;
+
+import javax.annotation.CheckForNull;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides which failed requests are worth repeating and how long to wait in between. Waits follow exponential
+ * backoff with decorrelated jitter, unless Dropbox tells how long to back off through the {@code Retry-After}
+ * header or the {@code retry_after} field of the error.
+ */
+public class RetryPolicy {
+
+    public static final RetryPolicy DEFAULT = new RetryPolicy(5, 500, TimeUnit.MINUTES.toMillis(1));
+    public static final RetryPolicy NONE = new RetryPolicy(0, 0, 0);
+
+    private static final long MAX_RETRY_AFTER_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final String[] RETRYABLE_TAGS = {"too_many_requests", "too_many_write_operations", "internal_error"};
+
+    private final int maxRetries;
+    private final long baseMillis;
+    private final long capMillis;
+    private final Random random = new Random();
+
+    public RetryPolicy(int maxRetries, long baseMillis, long capMillis) {
+        this.maxRetries = maxRetries;
+        this.baseMillis = baseMillis;
+        this.capMillis = capMillis;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * @param code  HTTP status code of the response
+     * @param error parsed error body, may be null
+     * @return true when the same request may succeed later
+     */
+    public boolean isRetryable(int code, @CheckForNull ErrorResponse error) {
+        if (code == 429 || code == 500 || code == 502 || code == 503 || code == 504) {
+            return true;
+        }
+        if (code == 409 && error != null) {
+            for (ErrorResponse.Error cause = error.getError(); cause != null; cause = cause.getReason()) {
+                for (String tag : RETRYABLE_TAGS) {
+                    if (tag.equals(cause.getTag())) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param previousMillis the previous wait, 0 on the first retry
+     * @param retryAfter     value of the {@code Retry-After} header, may be null
+     * @param error          parsed error body, may be null
+     * @return milliseconds to wait before the next attempt, or -1 when the server asks to wait too long
+     */
+    public long nextDelay(long previousMillis, @CheckForNull String retryAfter, @CheckForNull ErrorResponse error) {
+        long requested = requestedDelay(retryAfter, error);
+        if (requested > MAX_RETRY_AFTER_MILLIS) {
+            return -1;
+        }
+        if (requested >= 0) {
+            return requested;
+        }
+        long upper = Math.max(baseMillis, previousMillis * 3);
+        long delay = baseMillis + (long) (random.nextDouble() * (upper - baseMillis));
+        return Math.min(capMillis, delay);
+    }
+
+    /**
+     * Wait between attempts, tests may override this to keep time still.
+     */
+    protected void sleep(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+    }
+
+    private static long requestedDelay(@CheckForNull String retryAfter, @CheckForNull ErrorResponse error) {
+        if (retryAfter != null) {
+            try {
+                return TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+            } catch (NumberFormatException e) {
+                // HTTP dates are not sent by Dropbox, fall through to the error body
+            }
+        }
+        if (error != null && error.getError() != null && error.getError().getRetryAfter() != null) {
+            return TimeUnit.SECONDS.toMillis(error.getError().getRetryAfter());
+        }
+        return -1;
+    }
+}
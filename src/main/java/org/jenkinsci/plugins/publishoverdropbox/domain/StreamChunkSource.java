@@ -0,0 +1,80 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import org.apache.commons.io.IOUtils;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Chunks of a stream that is read from start to end, for files that are not directly accessible.
+ */
+public class StreamChunkSource implements ChunkSource {
+
+    private final InputStream source;
+    private final long length;
+    private final String identity;
+
+    public StreamChunkSource(@Nonnull InputStream source, long length) {
+        this(source, length, null);
+    }
+
+    /**
+     * @param identity identity of the stream content, see {@link UploadJournal#identify(String, long, long)}
+     */
+    public StreamChunkSource(@Nonnull InputStream source, long length, String identity) {
+        this.source = source;
+        this.length = length;
+        this.identity = identity;
+    }
+
+    @Override
+    public long getLength() {
+        return length;
+    }
+
+    @Override
+    public String getIdentity() {
+        return identity;
+    }
+
+    @Override
+    public void skip(long count) throws IOException {
+        IOUtils.skipFully(source, count);
+    }
+
+    @Override
+    public InputStream nextChunk(long size) {
+        return new ChunkedInputStream(source, size);
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+import hudson.FilePath;
+import hudson.Util;
+import hudson.util.Secret;
+import jenkins.model.Jenkins;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exchanges authorization codes for access codes on a background thread, so saving a credential never waits for
+ * Dropbox. Access codes are indexed by their authorization code, because an authorization code can be exchanged only
+ * once. Exchanged access codes are also kept encrypted in JENKINS_HOME, a credential that was saved before its
+ * exchange completed finds its access code there after a restart.
+ */
+public class TokenExchange {
+
+    private static final Log LOG = LogFactory.getLog(TokenExchange.class);
+    private static final String INDEX_FILE = "publish-over-dropbox-tokens.json";
+    private static final String UTF_8 = "UTF-8";
+    private static final TokenExchange instance = new TokenExchange();
+
+    private final ConcurrentMap<String, Future<String>> accessCodes = new ConcurrentHashMap<String, Future<String>>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(new ExchangeThreadFactory());
+    private Map<String, String> storedIndex;
+
+    TokenExchange() {
+    }
+
+    public static TokenExchange getInstance() {
+        return instance;
+    }
+
+    /**
+     * Index an access code that is already known, like the one of a loaded credential.
+     */
+    public void index(@Nonnull String authorizationCode, @Nonnull String accessCode) {
+        accessCodes.put(authorizationCode, completed(accessCode));
+    }
+
+    /**
+     * Start the exchange of an authorization code, unless its access code is known or already being exchanged.
+     * Returns without waiting for the exchange.
+     *
+     * @return the pending access code
+     */
+    public Future<String> exchange(@Nonnull final String authorizationCode) {
+        Future<String> existing = accessCodes.get(authorizationCode);
+        if (existing != null) {
+            return existing;
+        }
+        FutureTask<String> exchange = new FutureTask<String>(new Callable<String>() {
+            @Override
+            public String call() throws IOException {
+                return resolve(authorizationCode);
+            }
+        }) {
+            @Override
+            protected void setException(Throwable t) {
+                // A failed exchange is tried again when the access code is requested again
+                accessCodes.remove(authorizationCode, this);
+                super.setException(t);
+            }
+        };
+        existing = accessCodes.putIfAbsent(authorizationCode, exchange);
+        if (existing != null) {
+            return existing;
+        }
+        executor.execute(exchange);
+        return exchange;
+    }
+
+    /**
+     * Wait for the access code of an authorization code, starts the exchange when needed.
+     */
+    public String getAccessCode(@Nonnull String authorizationCode) throws IOException {
+        try {
+            return exchange(authorizationCode).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Retrieve a new access code from Dropbox.
+     */
+    protected String requestAccessCode(@Nonnull String authorizationCode) throws IOException {
+        return DropboxV2.convertAuthorizationToAccessCode(authorizationCode);
+    }
+
+    /**
+     * @return file that keeps the exchanged access codes, or null when they are not kept
+     */
+    protected FilePath getIndexFile() {
+        Jenkins jenkins = Jenkins.getInstance();
+        return jenkins == null ? null : jenkins.getRootPath().child(INDEX_FILE);
+    }
+
+    private String resolve(String authorizationCode) throws IOException {
+        if (StringUtils.isEmpty(authorizationCode)) {
+            return "";
+        }
+        String key = Util.getDigestOf(authorizationCode);
+        String accessCode = readStored(key);
+        if (accessCode == null) {
+            accessCode = requestAccessCode(authorizationCode);
+            store(key, accessCode);
+        }
+        return accessCode;
+    }
+
+    private synchronized String readStored(String key) {
+        String encrypted = loadIndex().get(key);
+        Secret secret = encrypted == null ? null : Secret.decrypt(encrypted);
+        return secret == null ? null : secret.getPlainText();
+    }
+
+    private synchronized void store(String key, String accessCode) {
+        Map<String, String> index = loadIndex();
+        index.put(key, Secret.fromString(accessCode).getEncryptedValue());
+        FilePath file = getIndexFile();
+        if (file != null) {
+            try {
+                file.write(new Gson().toJson(index), UTF_8);
+            } catch (IOException | InterruptedException e) {
+                LOG.warn("Failed to keep the exchanged access code", e);
+            }
+        }
+    }
+
+    private Map<String, String> loadIndex() {
+        if (storedIndex == null) {
+            storedIndex = new HashMap<String, String>();
+            FilePath file = getIndexFile();
+            try {
+                if (file != null && file.exists()) {
+                    Map<String, String> stored = new Gson().fromJson(file.readToString(), new TypeToken<Map<String, String>>() {
+                    }.getType());
+                    if (stored != null) {
+                        storedIndex.putAll(stored);
+                    }
+                }
+            } catch (IOException | InterruptedException | JsonSyntaxException e) {
+                LOG.warn("Failed to read the exchanged access codes", e);
+            }
+        }
+        return storedIndex;
+    }
+
+    private static Future<String> completed(String value) {
+        FutureTask<String> future = new FutureTask<String>(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }, value);
+        future.run();
+        return future;
+    }
+
+    private static class ExchangeThreadFactory implements ThreadFactory {
+        private static final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(@Nonnull Runnable runnable) {
+            Thread thread = new Thread(runnable, "Dropbox token exchange #" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import org.jenkinsci.plugins.publishoverdropbox.impl.Messages;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs file transfers on a bounded pool of workers. Submitting blocks while the pool and its queue are full,
+ * failures are reported in the order the transfers were submitted.
+ */
+public class TransferEngine {
+
+    private final ExecutorService executor;
+    private final Semaphore slots;
+    private final AtomicBoolean hasFailure = new AtomicBoolean(false);
+    private final List<Transfer> transfers = new ArrayList<Transfer>();
+
+    public TransferEngine(int parallelism) {
+        final int workers = Math.max(1, parallelism);
+        this.executor = Executors.newFixedThreadPool(workers, new TransferThreadFactory());
+        // Allow one waiting transfer per worker so a worker never idles while the next file is queued
+        this.slots = new Semaphore(2 * workers);
+    }
+
+    /**
+     * Queue a transfer, blocks until there is room in the queue.
+     *
+     * @param name     name used to report a failure of this transfer
+     * @param transfer the work to be done
+     * @throws IOException when an earlier transfer failed
+     */
+    public void submit(@Nonnull String name, @Nonnull final Callable<Void> transfer) throws IOException {
+        if (hasFailure.get()) {
+            await();
+        }
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(Messages.exception_transfer_failed(name), e);
+        }
+        Future<Void> future;
+        try {
+            future = executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    try {
+                        return transfer.call();
+                    } catch (Exception e) {
+                        hasFailure.set(true);
+                        throw e;
+                    } finally {
+                        slots.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            slots.release();
+            throw new IOException(Messages.exception_transfer_failed(name), e);
+        }
+        synchronized (transfers) {
+            transfers.add(new Transfer(name, future));
+        }
+    }
+
+    /**
+     * Wait for all submitted transfers to complete.
+     *
+     * @throws IOException the failure of the first submitted transfer that failed
+     */
+    public void await() throws IOException {
+        List<Transfer> pending;
+        synchronized (transfers) {
+            pending = new ArrayList<Transfer>(transfers);
+            transfers.clear();
+        }
+        IOException failure = null;
+        for (Transfer transfer : pending) {
+            try {
+                transfer.future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (failure == null) {
+                    failure = new IOException(Messages.exception_transfer_failed(transfer.name), e);
+                }
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    Throwable cause = e.getCause();
+                    failure = cause instanceof IOException ? (IOException) cause : new IOException(Messages.exception_transfer_failed(transfer.name), cause);
+                }
+            }
+        }
+        hasFailure.set(false);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Stop the workers, transfers that did not start yet are dropped.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static class Transfer {
+        private final String name;
+        private final Future<Void> future;
+
+        private Transfer(String name, Future<Void> future) {
+            this.name = name;
+            this.future = future;
+        }
+    }
+
+    private static class TransferThreadFactory implements ThreadFactory {
+        private static final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(@Nonnull Runnable runnable) {
+            Thread thread = new Thread(runnable, "Dropbox transfer #" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -30,6 +30,7 @@ import java.net.*;
 class URLBuilder {
     String scheme = "";
     String host = "";
+    int port = -1;
     String path = "";
     String query = "";
 
@@ -38,6 +39,7 @@ class URLBuilder {
         URI parseUri = new URI(uri);
         scheme = parseUri.getScheme() == null ? "" : parseUri.getScheme();
         host = parseUri.getHost() == null ? "" : parseUri.getHost();
+        port = parseUri.getPort();
         path = parseUri.getPath() == null ? "" : parseUri.getPath();
         query = parseUri.getQuery() == null ? "" : parseUri.getQuery();
     }
@@ -70,6 +72,6 @@ class URLBuilder {
             sb.append("?");
             sb.append(query);
         }
-        return new URL(scheme, host, sb.toString());
+        return new URL(scheme, host, port, sb.toString());
     }
 }
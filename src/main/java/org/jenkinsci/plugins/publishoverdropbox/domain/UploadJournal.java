@@ -0,0 +1,181 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import hudson.FilePath;
+import hudson.Util;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Persists the progress of chunked upload sessions, so a retry or a later build continues an interrupted upload
+ * instead of sending the whole file again. Each destination path has its own journal file.
+ */
+public class UploadJournal implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private static final Log LOG = LogFactory.getLog(UploadJournal.class);
+    private static final String UTF_8 = "UTF-8";
+    private static final String EXTENSION = ".json";
+
+    private final FilePath directory;
+    private transient Gson gson;
+
+    public UploadJournal(@Nonnull FilePath directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Identify the source of an upload, a journal entry is only continued for the same unchanged source.
+     */
+    public static String identify(@Nonnull String path, long length, long lastModified) {
+        return path + "|" + length + "|" + lastModified;
+    }
+
+    /**
+     * @param destination absolute Dropbox path of the upload
+     * @param source      identity of the uploaded content
+     * @return the unfinished session of the same source, or null when the upload has to start over
+     */
+    public synchronized Entry find(@Nonnull String destination, @Nonnull String source) {
+        FilePath file = fileOf(destination);
+        Entry entry = null;
+        try {
+            if (file.exists()) {
+                entry = getGson().fromJson(file.readToString(), Entry.class);
+                if (entry == null || !source.equals(entry.source)) {
+                    // The source changed since the interrupted upload
+                    entry = null;
+                    file.delete();
+                }
+            }
+        } catch (IOException | InterruptedException | JsonSyntaxException e) {
+            LOG.warn("Failed to read upload journal of " + destination, e);
+            entry = null;
+        }
+        return entry;
+    }
+
+    public synchronized void save(@Nonnull Entry entry) {
+        try {
+            String json;
+            synchronized (entry) {
+                json = getGson().toJson(entry);
+            }
+            directory.mkdirs();
+            fileOf(entry.destination).write(json, UTF_8);
+        } catch (IOException | InterruptedException e) {
+            LOG.warn("Failed to write upload journal of " + entry.destination, e);
+        }
+    }
+
+    public synchronized void remove(@Nonnull String destination) {
+        try {
+            fileOf(destination).delete();
+        } catch (IOException | InterruptedException e) {
+            LOG.warn("Failed to remove upload journal of " + destination, e);
+        }
+    }
+
+    private FilePath fileOf(String destination) {
+        return directory.child(Util.getDigestOf(destination.toLowerCase(Locale.ENGLISH)) + EXTENSION);
+    }
+
+    private Gson getGson() {
+        if (gson == null) {
+            gson = new Gson();
+        }
+        return gson;
+    }
+
+    /**
+     * Progress of one upload session.
+     */
+    public static class Entry {
+        private String destination;
+        private String source;
+        private String sessionId;
+        private boolean concurrent;
+        private long chunkSize;
+        private long offset;
+        private List<Long> appended = new ArrayList<Long>();
+
+        public Entry(@Nonnull String destination, @Nonnull String source, @Nonnull String sessionId, boolean concurrent, long chunkSize) {
+            this.destination = destination;
+            this.source = source;
+            this.sessionId = sessionId;
+            this.concurrent = concurrent;
+            this.chunkSize = chunkSize;
+        }
+
+        public String getDestination() {
+            return destination;
+        }
+
+        public String getSessionId() {
+            return sessionId;
+        }
+
+        public boolean isConcurrent() {
+            return concurrent;
+        }
+
+        public long getChunkSize() {
+            return chunkSize;
+        }
+
+        /**
+         * @return number of bytes confirmed by a sequential session
+         */
+        public long getOffset() {
+            return offset;
+        }
+
+        public void setOffset(long offset) {
+            this.offset = offset;
+        }
+
+        /**
+         * @return true when a concurrent session confirmed the chunk at the offset
+         */
+        public synchronized boolean isAppended(long chunkOffset) {
+            return appended.contains(chunkOffset);
+        }
+
+        public synchronized void addAppended(long chunkOffset) {
+            appended.add(chunkOffset);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.publishoverdropbox.domain.model;
+
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Status of a batch operation, either started as an asynchronous job or already completed
+ */
+public class BatchJobStatus {
+
+    public static final String TAG_ASYNC_JOB_ID = "async_job_id";
+    public static final String TAG_IN_PROGRESS = "in_progress";
+    public static final String TAG_COMPLETE = "complete";
+    public static final String TAG_FAILED = "failed";
+
+    @Expose
+    @SerializedName(".tag")
+    private String tag;
+    @Expose
+    @SerializedName("async_job_id")
+    private String asyncJobId;
+    @Expose
+    private List<BatchEntry> entries;
+
+    public String getTag() {
+        return tag;
+    }
+
+    public String getAsyncJobId() {
+        return asyncJobId;
+    }
+
+    public boolean isAsyncJob() {
+        return TAG_ASYNC_JOB_ID.equals(tag);
+    }
+
+    public boolean isInProgress() {
+        return TAG_IN_PROGRESS.equals(tag);
+    }
+
+    public boolean isComplete() {
+        return TAG_COMPLETE.equals(tag);
+    }
+
+    public boolean isFailed() {
+        return TAG_FAILED.equals(tag);
+    }
+
+    public List<BatchEntry> getEntries() {
+        if (entries == null) {
+            return Collections.emptyList();
+        }
+        return entries;
+    }
+}
@@ -42,6 +42,34 @@ public class ErrorResponse {
         @Expose
         @SerializedName(".tag")
         private String tag;
+        @Expose
+        private Error reason;
+        @Expose
+        @SerializedName("retry_after")
+        private Long retryAfter;
+
+        public String getTag() {
+            return tag;
+        }
+
+        public Error getReason() {
+            return reason;
+        }
+
+        /**
+         * @return seconds to wait before retrying a rate limited request, or null when not given
+         */
+        public Long getRetryAfter() {
+            return retryAfter;
+        }
+    }
+
+    public Error getError() {
+        return error;
+    }
+
+    public String getErrorSummary() {
+        return errorSummary;
     }
 
     @Override
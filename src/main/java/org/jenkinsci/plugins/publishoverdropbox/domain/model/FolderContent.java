@@ -24,12 +24,15 @@
 
 package org.jenkinsci.plugins.publishoverdropbox.domain.model;
 
+import com.google.gson.annotations.SerializedName;
+
 import java.util.List;
 
 public class FolderContent {
 
     private List<Metadata> entries;
     private String cursor;
+    @SerializedName("has_more")
     private boolean hasMore;
 
     public boolean hasMore() {
@@ -53,4 +53,16 @@ public class RestException extends IOException {
         super(message, cause);
         response = null;
     }
+
+    public RestException(String message, Object response, Throwable cause) {
+        super(message, cause);
+        this.response = response;
+    }
+
+    /**
+     * @return the parsed error body of the failed request, or null when there was none
+     */
+    public Object getResponse() {
+        return response;
+    }
 }
@@ -0,0 +1,18 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain.model.requests;
+
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+
+public class AsyncJobRequest {
+    @Expose
+    @SerializedName("async_job_id")
+    private String asyncJobId;
+
+    public String getAsyncJobId() {
+        return asyncJobId;
+    }
+
+    public void setAsyncJobId(String asyncJobId) {
+        this.asyncJobId = asyncJobId;
+    }
+}
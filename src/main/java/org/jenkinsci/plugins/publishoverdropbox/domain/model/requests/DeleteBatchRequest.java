@@ -0,0 +1,11 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain.model.requests;
+
+import com.google.gson.annotations.Expose;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class DeleteBatchRequest {
+    @Expose
+    final public List<DeleteRequest> entries = new ArrayList<DeleteRequest>();
+}
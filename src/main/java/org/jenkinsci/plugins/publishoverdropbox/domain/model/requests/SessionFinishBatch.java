@@ -0,0 +1,11 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain.model.requests;
+
+import com.google.gson.annotations.Expose;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SessionFinishBatch {
+    @Expose
+    final public List<SessionFinish> entries = new ArrayList<SessionFinish>();
+}
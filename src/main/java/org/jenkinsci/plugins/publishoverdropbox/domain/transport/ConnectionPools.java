@@ -0,0 +1,102 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.publishoverdropbox.domain.transport;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.annotation.Nonnull;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Connection pools shared between all builds that publish with the same host configuration.
+ */
+public final class ConnectionPools {
+
+    private static final Log LOG = LogFactory.getLog(ConnectionPools.class);
+    private static final Map<String, PooledTransport> pools = new HashMap<String, PooledTransport>();
+    private static final Map<String, HttpTransport> http2Clients = new HashMap<String, HttpTransport>();
+
+    private ConnectionPools() {
+    }
+
+    /**
+     * Lookup the pool of a host configuration, a pool with different settings is replaced.
+     *
+     * @param configurationName  name of the host configuration
+     * @param maxConnections     maximum number of open connections
+     * @param idleTimeoutSeconds seconds an unused connection is kept open
+     * @return the shared transport
+     */
+    public static synchronized PooledTransport forConfiguration(@Nonnull String configurationName, int maxConnections, int idleTimeoutSeconds) {
+        PooledTransport pool = pools.get(configurationName);
+        if (pool == null || pool.getMaxConnections() != Math.max(1, maxConnections) || pool.getIdleTimeoutSeconds() != Math.max(1, idleTimeoutSeconds)) {
+            PooledTransport replaced = pool;
+            pool = new PooledTransport(maxConnections, idleTimeoutSeconds);
+            pools.put(configurationName, pool);
+            if (replaced != null) {
+                // Running publishers finish their open responses on the replaced pool, it is shut down after them
+                replaced.retire(pool);
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Lookup the HTTP/2 client of a host configuration. Requests of all publishers using the configuration are
+     * multiplexed over the connections of this client. On a JVM without the JDK HTTP client the pool of the
+     * configuration is used instead.
+     *
+     * @param configurationName  name of the host configuration
+     * @param maxConnections     maximum number of open connections of the fallback pool
+     * @param idleTimeoutSeconds seconds an unused connection of the fallback pool is kept open
+     * @return the shared transport
+     */
+    public static synchronized HttpTransport http2ForConfiguration(@Nonnull String configurationName, int maxConnections, int idleTimeoutSeconds) {
+        if (!Http2Transport.isSupported()) {
+            LOG.warn("HTTP/2 requires Java 11 or newer, using HTTP/1.1 for " + configurationName);
+            return forConfiguration(configurationName, maxConnections, idleTimeoutSeconds);
+        }
+        HttpTransport client = http2Clients.get(configurationName);
+        if (client == null) {
+            client = new Http2Transport();
+            http2Clients.put(configurationName, client);
+        }
+        return client;
+    }
+
+    /**
+     * @return statistics of every pool by host configuration name
+     */
+    public static synchronized Map<String, PoolStatistics> getStatistics() {
+        Map<String, PoolStatistics> statistics = new HashMap<String, PoolStatistics>();
+        for (Map.Entry<String, PooledTransport> entry : pools.entrySet()) {
+            statistics.put(entry.getKey(), entry.getValue().getStatistics());
+        }
+        return statistics;
+    }
+}
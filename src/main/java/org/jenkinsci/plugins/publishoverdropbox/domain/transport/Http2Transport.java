@@ -0,0 +1,179 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.publishoverdropbox.domain.transport;
+
+import org.codehaus.mojo.animal_sniffer.IgnoreJRERequirement;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
+
+/**
+ * Transport on the JDK HTTP client that multiplexes concurrent requests over a single HTTP/2 connection per host.
+ * The JDK client is only available on Java 11 and newer, check {@link #isSupported()} before creating one.
+ */
+@IgnoreJRERequirement
+public class Http2Transport implements HttpTransport {
+
+    private static final String JDK_HTTP_CLIENT = "java.net.http.HttpClient";
+    private static final int CONNECT_TIMEOUT_SECONDS = 30;
+    private static final String HEADER_CONTENT_TYPE = "Content-Type";
+    private static final String OCTET_STREAM = "application/octet-stream";
+
+    private final HttpClient httpClient;
+
+    public Http2Transport() {
+        ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Dropbox HTTP/2 client");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(CONNECT_TIMEOUT_SECONDS))
+                .executor(executor)
+                .build();
+    }
+
+    /**
+     * @return true when the running JVM provides the JDK HTTP client
+     */
+    public static boolean isSupported() {
+        try {
+            Class.forName(JDK_HTTP_CLIENT);
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public TransportResponse execute(TransportRequest request) throws IOException {
+        HttpRequest.Builder builder;
+        try {
+            builder = HttpRequest.newBuilder(request.getUrl().toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+        if (request.getTimeout() > 0 && request.getContentLength() <= 0) {
+            // The timeout limits the whole exchange instead of each read, uploads on a slow link are not cut off
+            builder.timeout(Duration.ofMillis(request.getTimeout()));
+        }
+        for (Map.Entry<String, String> entry : request.getHeaders().entrySet()) {
+            builder.header(entry.getKey(), entry.getValue());
+        }
+        if (request.getBody() != null) {
+            builder.header(HEADER_CONTENT_TYPE, request.getContentType() != null ? request.getContentType() : OCTET_STREAM);
+        }
+        builder.method(request.getMethod(), createBody(request));
+        try {
+            HttpResponse<InputStream> response = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+            return new Http2Response(response);
+        } catch (HttpConnectTimeoutException e) {
+            ConnectException failure = new ConnectException(e.getMessage());
+            failure.initCause(e);
+            throw failure;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException interrupted = new InterruptedIOException(e.getMessage());
+            interrupted.initCause(e);
+            throw interrupted;
+        } finally {
+            if (request.getBody() != null) {
+                request.getBody().close();
+            }
+        }
+    }
+
+    private static HttpRequest.BodyPublisher createBody(TransportRequest request) {
+        final InputStream body = request.getBody();
+        if (body == null || request.getContentLength() == 0) {
+            // A fixed length publisher only accepts a positive length
+            return HttpRequest.BodyPublishers.noBody();
+        }
+        HttpRequest.BodyPublisher publisher = HttpRequest.BodyPublishers.ofInputStream(new Supplier<InputStream>() {
+            @Override
+            public InputStream get() {
+                return body;
+            }
+        });
+        if (request.getContentLength() > 0) {
+            publisher = HttpRequest.BodyPublishers.fromPublisher(publisher, request.getContentLength());
+        }
+        return publisher;
+    }
+
+    @IgnoreJRERequirement
+    private static class Http2Response implements TransportResponse {
+        private final HttpResponse<InputStream> response;
+
+        Http2Response(HttpResponse<InputStream> response) {
+            this.response = response;
+        }
+
+        @Override
+        public int getCode() {
+            return response.statusCode();
+        }
+
+        @Override
+        public String getMessage() {
+            // HTTP/2 has no reason phrase
+            return "";
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return response.headers().firstValue(name).orElse(null);
+        }
+
+        @Override
+        public InputStream getBody() {
+            return response.body();
+        }
+
+        @Override
+        public void close() throws IOException {
+            response.body().close();
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.publishoverdropbox.domain.transport;
+
+import org.apache.http.*;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.URISyntaxException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transport on a pool of keep-alive connections that is shared by all clients of one host configuration.
+ */
+public class PooledTransport implements HttpTransport {
+
+    private static final long EVICTION_INTERVAL_MILLIS = 5000;
+
+    private final int maxConnections;
+    private final int idleTimeoutSeconds;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong lastEviction = new AtomicLong(System.currentTimeMillis());
+    private int openResponses;
+    private PooledTransport replacement;
+
+    /**
+     * @param maxConnections     maximum number of open connections, to all hosts together
+     * @param idleTimeoutSeconds seconds an unused connection is kept open
+     */
+    public PooledTransport(int maxConnections, int idleTimeoutSeconds) {
+        this.maxConnections = Math.max(1, maxConnections);
+        this.idleTimeoutSeconds = Math.max(1, idleTimeoutSeconds);
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(this.maxConnections);
+        // The API and content endpoints are each a single route, each may use the whole pool
+        connectionManager.setDefaultMaxPerRoute(this.maxConnections);
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(new IdleLimitedKeepAliveStrategy(this.idleTimeoutSeconds))
+                .disableCookieManagement()
+                .disableRedirectHandling()
+                .build();
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public int getIdleTimeoutSeconds() {
+        return idleTimeoutSeconds;
+    }
+
+    @Override
+    public TransportResponse execute(TransportRequest request) throws IOException {
+        PooledTransport next = open();
+        if (next != null) {
+            // Publishers that started before the settings changed continue on the new pool
+            return next.execute(request);
+        }
+        boolean opened = false;
+        try {
+            TransportResponse response = send(request);
+            opened = true;
+            return response;
+        } finally {
+            if (!opened) {
+                release();
+            }
+        }
+    }
+
+    private TransportResponse send(TransportRequest request) throws IOException {
+        evictIdleConnections();
+        RequestBuilder builder = RequestBuilder.create(request.getMethod());
+        try {
+            builder.setUri(request.getUrl().toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+        for (Map.Entry<String, String> entry : request.getHeaders().entrySet()) {
+            builder.addHeader(entry.getKey(), entry.getValue());
+        }
+        if (request.getBody() != null) {
+            ContentType contentType = request.getContentType() == null ? ContentType.APPLICATION_OCTET_STREAM : ContentType.parse(request.getContentType());
+            builder.setEntity(new InputStreamEntity(request.getBody(), request.getContentLength(), contentType));
+        }
+        builder.setConfig(RequestConfig.custom()
+                .setConnectTimeout(request.getTimeout())
+                .setConnectionRequestTimeout(request.getTimeout())
+                .setSocketTimeout(request.getTimeout())
+                .build());
+        HttpRequestBase httpRequest = (HttpRequestBase) builder.build();
+        requests.incrementAndGet();
+        try {
+            return new PooledResponse(httpClient.execute(httpRequest));
+        } catch (ConnectTimeoutException e) {
+            // Also thrown while waiting for a pooled connection, the request was not sent
+            ConnectException failure = new ConnectException(e.getMessage());
+            failure.initCause(e);
+            throw failure;
+        } finally {
+            if (request.getBody() != null) {
+                request.getBody().close();
+            }
+        }
+    }
+
+    /**
+     * @return current usage of the connection pool
+     */
+    public PoolStatistics getStatistics() {
+        PoolStats stats = connectionManager.getTotalStats();
+        return new PoolStatistics(stats.getLeased(), stats.getAvailable(), stats.getPending(), stats.getMax(), requests.get());
+    }
+
+    /**
+     * Close all connections, the transport can not be used afterwards.
+     */
+    public void shutdown() {
+        connectionManager.shutdown();
+    }
+
+    /**
+     * Hand this pool over to a pool with new settings. Responses that are still open are completed, the pool is shut
+     * down once the last one is closed. New requests are sent through the replacement.
+     *
+     * @param replacement the pool that takes over the requests
+     */
+    synchronized void retire(@Nonnull PooledTransport replacement) {
+        this.replacement = replacement;
+        if (openResponses == 0) {
+            shutdown();
+        }
+    }
+
+    /**
+     * @return the pool to send the request through instead, null when this pool sends it
+     */
+    private synchronized PooledTransport open() {
+        if (replacement != null) {
+            return replacement;
+        }
+        openResponses++;
+        return null;
+    }
+
+    private synchronized void release() {
+        openResponses--;
+        if (replacement != null && openResponses == 0) {
+            shutdown();
+        }
+    }
+
+    private void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+        long last = lastEviction.get();
+        if (now - last > EVICTION_INTERVAL_MILLIS && lastEviction.compareAndSet(last, now)) {
+            connectionManager.closeExpiredConnections();
+            connectionManager.closeIdleConnections(idleTimeoutSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Keep connections alive as long as the server allows, but no longer then the idle timeout.
+     */
+    private static class IdleLimitedKeepAliveStrategy implements ConnectionKeepAliveStrategy {
+        private final long maxKeepAliveMillis;
+
+        IdleLimitedKeepAliveStrategy(int idleTimeoutSeconds) {
+            this.maxKeepAliveMillis = TimeUnit.SECONDS.toMillis(idleTimeoutSeconds);
+        }
+
+        @Override
+        public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+            long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            if (serverKeepAlive < 0) {
+                return maxKeepAliveMillis;
+            }
+            return Math.min(serverKeepAlive, maxKeepAliveMillis);
+        }
+    }
+
+    private class PooledResponse implements TransportResponse {
+        private final CloseableHttpResponse response;
+        private boolean closed;
+
+        PooledResponse(CloseableHttpResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        public int getCode() {
+            return response.getStatusLine().getStatusCode();
+        }
+
+        @Override
+        public String getMessage() {
+            return response.getStatusLine().getReasonPhrase();
+        }
+
+        @Override
+        public String getHeader(String name) {
+            Header header = response.getFirstHeader(name);
+            return header == null ? null : header.getValue();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            HttpEntity entity = response.getEntity();
+            return entity == null ? null : entity.getContent();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                // Reading the remainder of the body allows the connection to be reused
+                EntityUtils.consumeQuietly(response.getEntity());
+                response.close();
+            } finally {
+                release();
+            }
+        }
+    }
+}
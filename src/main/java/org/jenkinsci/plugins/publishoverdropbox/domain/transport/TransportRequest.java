@@ -0,0 +1,102 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.publishoverdropbox.domain.transport;
+
+import javax.annotation.Nonnull;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class TransportRequest {
+
+    private static final String HEADER_CONTENT_LENGTH = "Content-Length";
+
+    private final URL url;
+    private final String method;
+    private final Map<String, String> headers = new LinkedHashMap<String, String>();
+    private InputStream body;
+    private String contentType;
+    private long contentLength = -1;
+    private int timeout;
+
+    public TransportRequest(@Nonnull URL url, @Nonnull String method) {
+        this.url = url;
+        this.method = method;
+    }
+
+    public URL getUrl() {
+        return url;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Add a header, a Content-Length header sets the length of the body instead.
+     */
+    public void addHeader(@Nonnull String key, @Nonnull String value) {
+        if (HEADER_CONTENT_LENGTH.equalsIgnoreCase(key)) {
+            contentLength = Long.parseLong(value);
+        } else {
+            headers.put(key, value);
+        }
+    }
+
+    public Map<String, String> getHeaders() {
+        return Collections.unmodifiableMap(headers);
+    }
+
+    public void setBody(InputStream body, String contentType) {
+        this.body = body;
+        this.contentType = contentType;
+    }
+
+    public InputStream getBody() {
+        return body;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return length of the body in bytes, or -1 when unknown
+     */
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    public int getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+}
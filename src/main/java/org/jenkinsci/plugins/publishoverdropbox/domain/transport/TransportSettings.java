@@ -0,0 +1,68 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.publishoverdropbox.domain.transport;
+
+import javax.annotation.Nonnull;
+import java.io.Serializable;
+
+/**
+ * Transport settings of a host configuration. Uploads on an agent receive them, so the agent opens the same kind of
+ * shared transport in its own JVM.
+ */
+public class TransportSettings implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private final String configurationName;
+    private final boolean http2;
+    private final int maxConnections;
+    private final int idleTimeoutSeconds;
+
+    /**
+     * @param configurationName  name of the host configuration
+     * @param http2              true to multiplex requests over HTTP/2
+     * @param maxConnections     maximum number of open connections
+     * @param idleTimeoutSeconds seconds an unused connection is kept open
+     */
+    public TransportSettings(@Nonnull String configurationName, boolean http2, int maxConnections, int idleTimeoutSeconds) {
+        this.configurationName = configurationName;
+        this.http2 = http2;
+        this.maxConnections = maxConnections;
+        this.idleTimeoutSeconds = idleTimeoutSeconds;
+    }
+
+    public String getConfigurationName() {
+        return configurationName;
+    }
+
+    /**
+     * @return the transport of the configuration, shared by all clients in this JVM
+     */
+    public HttpTransport getTransport() {
+        if (http2) {
+            return ConnectionPools.http2ForConfiguration(configurationName, maxConnections, idleTimeoutSeconds);
+        }
+        return ConnectionPools.forConfiguration(configurationName, maxConnections, idleTimeoutSeconds);
+    }
+}
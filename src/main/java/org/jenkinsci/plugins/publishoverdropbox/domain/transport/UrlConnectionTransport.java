@@ -0,0 +1,154 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.publishoverdropbox.domain.transport;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.util.Map;
+
+/**
+ * Transport on a new {@link HttpURLConnection} per request, reuse is left to the keep-alive cache of the JVM.
+ */
+public class UrlConnectionTransport implements HttpTransport {
+
+    private static final String HEADER_CONTENT_TYPE = "Content-Type";
+    private static final String OCTET_STREAM = "application/octet-stream";
+
+    private static final UrlConnectionTransport INSTANCE = new UrlConnectionTransport();
+
+    public static UrlConnectionTransport getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public TransportResponse execute(TransportRequest request) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) request.getUrl().openConnection();
+        connection.setReadTimeout(request.getTimeout());
+        connection.setConnectTimeout(request.getTimeout());
+        for (Map.Entry<String, String> entry : request.getHeaders().entrySet()) {
+            connection.addRequestProperty(entry.getKey(), entry.getValue());
+        }
+        connection.setRequestMethod(request.getMethod());
+        connection.setDoOutput(false);
+        connection.setDoInput(true);
+        if (request.getBody() != null) {
+            connection.setDoOutput(true);
+            prepareUpload(connection, request);
+        }
+        connect(connection, request);
+        if (request.getBody() != null) {
+            upload(connection, request);
+        }
+
+        return new UrlConnectionResponse(connection);
+    }
+
+    /**
+     * Open the connection before anything is written, a failure to connect is reported as a {@link ConnectException}.
+     */
+    private static void connect(HttpURLConnection connection, TransportRequest request) throws IOException {
+        try {
+            connection.connect();
+        } catch (SocketTimeoutException e) {
+            IOUtils.closeQuietly(request.getBody());
+            ConnectException failure = new ConnectException(e.getMessage());
+            failure.initCause(e);
+            throw failure;
+        } catch (IOException e) {
+            IOUtils.closeQuietly(request.getBody());
+            throw e;
+        }
+    }
+
+    private void prepareUpload(HttpURLConnection connection, TransportRequest request) {
+        if (request.getContentType() != null) {
+            connection.addRequestProperty(HEADER_CONTENT_TYPE, request.getContentType());
+        } else {
+            // Leaving content type null will result in malformed requests, not setting it will result in an incorrect value
+            connection.addRequestProperty(HEADER_CONTENT_TYPE, OCTET_STREAM);
+        }
+        if (request.getContentLength() >= 0) {
+            // Stream the body instead of buffering it completely in memory
+            connection.setFixedLengthStreamingMode(request.getContentLength());
+        }
+    }
+
+    private void upload(HttpURLConnection connection, TransportRequest request) throws IOException {
+        OutputStream outputStream = null;
+        try {
+            outputStream = connection.getOutputStream();
+            IOUtils.copyLarge(request.getBody(), outputStream);
+            outputStream.flush();
+        } finally {
+            IOUtils.closeQuietly(request.getBody());
+            IOUtils.closeQuietly(outputStream);
+        }
+    }
+
+    private static class UrlConnectionResponse implements TransportResponse {
+        private final HttpURLConnection connection;
+        private InputStream body;
+
+        UrlConnectionResponse(HttpURLConnection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public int getCode() throws IOException {
+            return connection.getResponseCode();
+        }
+
+        @Override
+        public String getMessage() throws IOException {
+            return connection.getResponseMessage();
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return connection.getHeaderField(name);
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                int code = getCode();
+                body = code < 200 || code > 299 ? connection.getErrorStream() : connection.getInputStream();
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            IOUtils.closeQuietly(body);
+        }
+    }
+}
@@ -26,20 +26,29 @@ package org.jenkinsci.plugins.publishoverdropbox.impl;
 
 import com.cloudbees.plugins.credentials.CredentialsProvider;
 import com.cloudbees.plugins.credentials.domains.DomainRequirement;
+import hudson.FilePath;
+import hudson.Util;
 import hudson.model.Describable;
 import jenkins.model.Jenkins;
 import jenkins.plugins.publish_over.BPBuildInfo;
 import jenkins.plugins.publish_over.BPHostConfiguration;
 import jenkins.plugins.publish_over.BapPublisherException;
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.builder.EqualsBuilder;
 import org.apache.commons.lang.builder.HashCodeBuilder;
 import org.apache.commons.lang.builder.ToStringBuilder;
 import org.apache.commons.lang.builder.ToStringStyle;
 import org.jenkinsci.plugins.publishoverdropbox.DropboxToken;
 import org.jenkinsci.plugins.publishoverdropbox.descriptor.DropboxHostConfigurationDescriptor;
+import org.jenkinsci.plugins.publishoverdropbox.domain.ChunkSizeController;
 import org.jenkinsci.plugins.publishoverdropbox.domain.DropboxClient;
 import org.jenkinsci.plugins.publishoverdropbox.domain.DropboxV2;
+import org.jenkinsci.plugins.publishoverdropbox.domain.PruneState;
+import org.jenkinsci.plugins.publishoverdropbox.domain.RateLimiter;
+import org.jenkinsci.plugins.publishoverdropbox.domain.UploadJournal;
+import org.jenkinsci.plugins.publishoverdropbox.domain.transport.TransportSettings;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 
 import java.io.IOException;
 import java.util.List;
@@ -47,9 +56,28 @@ import java.util.List;
 public class DropboxHostConfiguration extends BPHostConfiguration<DropboxClient, Object> implements Describable<DropboxHostConfiguration> {
 
     public static final int DEFAULT_TIMEOUT = 300000;
+    // Concurrent uploads are opt-in, upgraded configurations keep uploading one file and one chunk at a time
+    public static final int DEFAULT_CHUNK_WORKERS = 1;
+    public static final int DEFAULT_PARALLELISM = 1;
+    public static final int DEFAULT_MAX_CONNECTIONS = 20;
+    public static final int DEFAULT_IDLE_TIMEOUT = 60;
+    public static final int DEFAULT_REQUESTS_PER_SECOND = 0;
+    public static final int DEFAULT_UPLOAD_RATE = 0;
+    private static final double BYTES_PER_KILO_BYTE = 1024;
     private static final long serialVersionUID = 1L;
+    private static final String JOURNAL_DIRECTORY = "publish-over-dropbox-uploads";
+    private static final String PRUNE_DIRECTORY = "publish-over-dropbox-prunes";
     private DropboxToken token;
     private final int timeout;
+    private int chunkWorkers = DEFAULT_CHUNK_WORKERS;
+    private int parallelism = DEFAULT_PARALLELISM;
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+    private int idleTimeout = DEFAULT_IDLE_TIMEOUT;
+    private boolean http2;
+    private int requestsPerSecond = DEFAULT_REQUESTS_PER_SECOND;
+    private int uploadRate = DEFAULT_UPLOAD_RATE;
+    private boolean agentUpload;
+    private boolean batchCommits;
 
     @DataBoundConstructor
     public DropboxHostConfiguration(final String name, final String token, final String remoteRootDir, final int timeout) {
@@ -58,6 +86,25 @@ public class DropboxHostConfiguration extends BPHostConfiguration<DropboxClient,
         this.token = token == null ? null : lookupTokenId(token);
     }
 
+    /**
+     * Configurations saved before a setting existed load it as 0, those get the default instead.
+     */
+    public Object readResolve() {
+        if (chunkWorkers <= 0) {
+            chunkWorkers = DEFAULT_CHUNK_WORKERS;
+        }
+        if (parallelism <= 0) {
+            parallelism = DEFAULT_PARALLELISM;
+        }
+        if (maxConnections <= 0) {
+            maxConnections = DEFAULT_MAX_CONNECTIONS;
+        }
+        if (idleTimeout <= 0) {
+            idleTimeout = DEFAULT_IDLE_TIMEOUT;
+        }
+        return this;
+    }
+
     private DropboxToken lookupTokenId(String tokenId) {
         List<DropboxToken> credentials = CredentialsProvider.lookupCredentials(DropboxToken.class, Jenkins.getActiveInstance(), null, (DomainRequirement) null);
         for (DropboxToken token : credentials) {
@@ -76,9 +123,96 @@ public class DropboxHostConfiguration extends BPHostConfiguration<DropboxClient,
         this.token = token;
     }
 
+    public int getChunkWorkers() {
+        return chunkWorkers;
+    }
+
+    @DataBoundSetter
+    public void setChunkWorkers(final int chunkWorkers) {
+        this.chunkWorkers = chunkWorkers;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    @DataBoundSetter
+    public void setParallelism(final int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    @DataBoundSetter
+    public void setMaxConnections(final int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    @DataBoundSetter
+    public void setIdleTimeout(final int idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public boolean isHttp2() {
+        return http2;
+    }
+
+    @DataBoundSetter
+    public void setHttp2(final boolean http2) {
+        this.http2 = http2;
+    }
+
+    public int getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    @DataBoundSetter
+    public void setRequestsPerSecond(final int requestsPerSecond) {
+        this.requestsPerSecond = requestsPerSecond;
+    }
+
+    /**
+     * @return upload budget of the token in KB per second, 0 for unlimited
+     */
+    public int getUploadRate() {
+        return uploadRate;
+    }
+
+    @DataBoundSetter
+    public void setUploadRate(final int uploadRate) {
+        this.uploadRate = uploadRate;
+    }
+
+    public boolean isAgentUpload() {
+        return agentUpload;
+    }
+
+    @DataBoundSetter
+    public void setAgentUpload(final boolean agentUpload) {
+        this.agentUpload = agentUpload;
+    }
+
+    /**
+     * @return true to commit small files together at the end of the transfer instead of one by one
+     */
+    public boolean isBatchCommits() {
+        return batchCommits;
+    }
+
+    @DataBoundSetter
+    public void setBatchCommits(final boolean batchCommits) {
+        this.batchCommits = batchCommits;
+    }
+
     @Override
     public DropboxClient createClient(final BPBuildInfo buildInfo) {
-        final DropboxClient client = new DropboxClient(createDropbox(), buildInfo);
+        final DropboxClient client = new DropboxClient(createDropbox(buildInfo), buildInfo);
         try {
             init(client);
         } catch (IOException ioe) {
@@ -87,11 +221,46 @@ public class DropboxHostConfiguration extends BPHostConfiguration<DropboxClient,
         return client;
     }
 
-    private DropboxV2 createDropbox() {
+    private DropboxV2 createDropbox(final BPBuildInfo buildInfo) {
         if (token == null) {
             throw new BapPublisherException(Messages.exception_bap_createclient("Missing token"));
         }
-        return new DropboxV2(token.getAccessCode());
+        TransportSettings transportSettings = createTransportSettings();
+        DropboxV2 dropbox = new DropboxV2(token.getAccessCode(), transportSettings.getTransport());
+        dropbox.setTransportSettings(transportSettings);
+        dropbox.setUploadJournal(createUploadJournal(buildInfo));
+        dropbox.setPruneState(createPruneState(buildInfo));
+        dropbox.setChunkSizeController(ChunkSizeController.forConfiguration(StringUtils.defaultString(getName())));
+        dropbox.setRateLimiter(createRateLimiter());
+        return dropbox;
+    }
+
+    private UploadJournal createUploadJournal(final BPBuildInfo buildInfo) {
+        // Kept in JENKINS_HOME instead of a build directory, so a rebuild of the job continues the upload as well
+        FilePath configDir = buildInfo == null ? null : buildInfo.getConfigDir();
+        if (configDir == null) {
+            return null;
+        }
+        return new UploadJournal(configDir.child(JOURNAL_DIRECTORY).child(Util.getDigestOf(StringUtils.defaultString(getName()))));
+    }
+
+    private PruneState createPruneState(final BPBuildInfo buildInfo) {
+        FilePath configDir = buildInfo == null ? null : buildInfo.getConfigDir();
+        if (configDir == null) {
+            return null;
+        }
+        return new PruneState(configDir.child(PRUNE_DIRECTORY).child(Util.getDigestOf(StringUtils.defaultString(getName()))));
+    }
+
+    private RateLimiter createRateLimiter() {
+        // Shared by every configuration and build publishing with this token
+        RateLimiter limiter = RateLimiter.forToken(token.getId());
+        limiter.setRates(StringUtils.defaultString(getName()), requestsPerSecond, uploadRate * BYTES_PER_KILO_BYTE);
+        return limiter;
+    }
+
+    private TransportSettings createTransportSettings() {
+        return new TransportSettings(StringUtils.defaultString(getName()), http2, maxConnections, idleTimeout);
     }
 
 
@@ -105,6 +274,10 @@ public class DropboxHostConfiguration extends BPHostConfiguration<DropboxClient,
 
     private void configureDropboxclient(final DropboxClient client) {
         client.setTimeout(timeout);
+        client.setChunkWorkers(chunkWorkers);
+        client.setBatchCommits(batchCommits);
+        client.setParallelism(parallelism);
+        client.setAgentUpload(agentUpload);
         client.setToken(token.getAuthorizationCode());
     }
 
@@ -127,19 +300,46 @@ public class DropboxHostConfiguration extends BPHostConfiguration<DropboxClient,
     protected HashCodeBuilder addToHashCode(final HashCodeBuilder builder) {
         return super.addToHashCode(builder)
                 .append(token)
-                .append(timeout);
+                .append(timeout)
+                .append(chunkWorkers)
+                .append(parallelism)
+                .append(maxConnections)
+                .append(idleTimeout)
+                .append(http2)
+                .append(requestsPerSecond)
+                .append(uploadRate)
+                .append(agentUpload)
+                .append(batchCommits);
     }
 
     protected EqualsBuilder addToEquals(final EqualsBuilder builder, final DropboxHostConfiguration that) {
         return super.addToEquals(builder, that)
                 .append(token, that.token)
-                .append(timeout, that.timeout);
+                .append(timeout, that.timeout)
+                .append(chunkWorkers, that.chunkWorkers)
+                .append(parallelism, that.parallelism)
+                .append(maxConnections, that.maxConnections)
+                .append(idleTimeout, that.idleTimeout)
+                .append(http2, that.http2)
+                .append(requestsPerSecond, that.requestsPerSecond)
+                .append(uploadRate, that.uploadRate)
+                .append(agentUpload, that.agentUpload)
+                .append(batchCommits, that.batchCommits);
     }
 
     protected ToStringBuilder addToToString(final ToStringBuilder builder) {
         return super.addToToString(builder)
                 .append("token", token)
-                .append("timeout", timeout);
+                .append("timeout", timeout)
+                .append("chunkWorkers", chunkWorkers)
+                .append("parallelism", parallelism)
+                .append("maxConnections", maxConnections)
+                .append("idleTimeout", idleTimeout)
+                .append("http2", http2)
+                .append("requestsPerSecond", requestsPerSecond)
+                .append("uploadRate", uploadRate)
+                .append("agentUpload", agentUpload)
+                .append("batchCommits", batchCommits);
     }
 
     public boolean equals(final Object that) {
@@ -0,0 +1,87 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2015 by René de Groot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.publishoverdropbox.impl;
+
+import com.codahale.metrics.MetricRegistry;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import jenkins.metrics.api.Metrics;
+import jenkins.model.Jenkins;
+import org.jenkinsci.plugins.publishoverdropbox.domain.RequestMetrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the {@link RequestMetrics} of the Dropbox requests through the Jenkins Metrics plugin, when installed.
+ */
+public class DropboxMetrics {
+
+    private static final String METRICS_PLUGIN = "metrics";
+    private static final String PREFIX = "dropbox";
+
+    @Initializer(after = InitMilestone.PLUGINS_STARTED)
+    public static void registerWithMetricsPlugin() {
+        if (Jenkins.getActiveInstance().getPlugin(METRICS_PLUGIN) == null) {
+            return;
+        }
+        RequestMetrics.getInstance().addListener(new MetricsPluginListener());
+    }
+
+    /**
+     * Only loaded when the optional Metrics plugin is present.
+     */
+    private static class MetricsPluginListener implements RequestMetrics.Listener {
+
+        @Override
+        public void onRequest(String endpoint, long nanos, long bytes, int code) {
+            MetricRegistry registry = Metrics.metricRegistry();
+            registry.timer(MetricRegistry.name(PREFIX, endpoint, "latency")).update(nanos, TimeUnit.NANOSECONDS);
+            if (bytes > 0) {
+                registry.meter(MetricRegistry.name(PREFIX, endpoint, "bytes")).mark(bytes);
+            }
+            if (code < 200 || code > 299) {
+                registry.counter(MetricRegistry.name(PREFIX, endpoint, "errors")).inc();
+            }
+        }
+
+        @Override
+        public void onRetry(String endpoint, int code) {
+            MetricRegistry registry = Metrics.metricRegistry();
+            registry.counter(MetricRegistry.name(PREFIX, endpoint, "retries")).inc();
+            if (code == 429) {
+                registry.counter(MetricRegistry.name(PREFIX, endpoint, "rate_limited")).inc();
+            }
+        }
+
+        @Override
+        public void onChunk(long bytes, long nanos) {
+            if (nanos <= 0) {
+                return;
+            }
+            MetricRegistry registry = Metrics.metricRegistry();
+            registry.histogram(MetricRegistry.name(PREFIX, RequestMetrics.CHUNKS, "throughput")).update((long) (bytes * 1e9 / nanos));
+        }
+    }
+}
@@ -28,8 +28,10 @@ import com.cloudbees.plugins.credentials.CredentialsScope;
 import com.cloudbees.plugins.credentials.impl.BaseStandardCredentials;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.Extension;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.jenkinsci.plugins.publishoverdropbox.DropboxToken;
-import org.jenkinsci.plugins.publishoverdropbox.domain.DropboxV2;
+import org.jenkinsci.plugins.publishoverdropbox.domain.TokenExchange;
 import org.kohsuke.stapler.DataBoundConstructor;
 
 import javax.annotation.Nonnull;
@@ -38,17 +40,27 @@ import java.io.IOException;
 public class DropboxTokenImpl extends BaseStandardCredentials implements DropboxToken {
 
     static final long serialVersionUID = 43L;
+    private static final Log LOG = LogFactory.getLog(DropboxTokenImpl.class);
 
     @Nonnull
     private final String authorizationCode;
-    @Nonnull
-    private final String accessCode;
+    private String accessCode;
 
     @DataBoundConstructor
-    public DropboxTokenImpl(CredentialsScope scope, String id, @Nonnull String authorizationCode, String description) throws IOException {
+    public DropboxTokenImpl(CredentialsScope scope, String id, @Nonnull String authorizationCode, String description) {
         super(scope, id, description);
         this.authorizationCode = authorizationCode;
-        this.accessCode = DropboxV2.convertAuthorizationToAccessCode(authorizationCode);
+        // Exchanged in the background, the access code is resolved when it is first used
+        TokenExchange.getInstance().exchange(authorizationCode);
+    }
+
+    protected Object readResolve() {
+        if (accessCode != null) {
+            TokenExchange.getInstance().index(authorizationCode, accessCode);
+        } else {
+            TokenExchange.getInstance().exchange(authorizationCode);
+        }
+        return this;
     }
 
     @NonNull
@@ -60,6 +72,14 @@ public class DropboxTokenImpl extends BaseStandardCredentials implements Dropbox
     @NonNull
     @Override
     public String getAccessCode() {
+        if (accessCode == null) {
+            try {
+                accessCode = TokenExchange.getInstance().getAccessCode(authorizationCode);
+            } catch (IOException e) {
+                LOG.warn("Failed to exchange the authorization code of " + getId(), e);
+                return "";
+            }
+        }
         return accessCode;
     }
 
@@ -27,12 +27,14 @@ package org.jenkinsci.plugins.publishoverdropbox.impl;
 import hudson.model.Describable;
 import jenkins.model.Jenkins;
 import jenkins.plugins.publish_over.BPTransfer;
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.builder.EqualsBuilder;
 import org.apache.commons.lang.builder.HashCodeBuilder;
 import org.apache.commons.lang.builder.ToStringBuilder;
 import org.apache.commons.lang.builder.ToStringStyle;
 import org.jenkinsci.plugins.publishoverdropbox.descriptor.DropboxTransferDescriptor;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 
 public class DropboxTransfer extends BPTransfer implements Describable<DropboxTransfer> {
 
@@ -40,6 +42,9 @@ public class DropboxTransfer extends BPTransfer implements Describable<DropboxTr
     private static final long serialVersionUID = 1L;
     private final boolean pruneRoot;
     private final int pruneRootDays;
+    private boolean incremental;
+    private String archiveName;
+    private boolean mirror;
 
     @DataBoundConstructor
     public DropboxTransfer(final String sourceFiles, final String excludes, final String remoteDirectory, final String removePrefix,
@@ -49,6 +54,14 @@ public class DropboxTransfer extends BPTransfer implements Describable<DropboxTr
         this.pruneRootDays = pruneRootDays;
     }
 
+    /**
+     * Transfers saved before incremental, mirror and archive uploads existed keep uploading every file as before.
+     */
+    public Object readResolve() {
+        archiveName = StringUtils.trimToNull(archiveName);
+        return this;
+    }
+
     public int getPruneRootDays() {
         return pruneRootDays;
     }
@@ -57,6 +70,40 @@ public class DropboxTransfer extends BPTransfer implements Describable<DropboxTr
         return pruneRoot;
     }
 
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    @DataBoundSetter
+    public void setIncremental(final boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    public boolean isMirror() {
+        return mirror;
+    }
+
+    @DataBoundSetter
+    public void setMirror(final boolean mirror) {
+        this.mirror = mirror;
+    }
+
+    public String getArchiveName() {
+        return archiveName;
+    }
+
+    @DataBoundSetter
+    public void setArchiveName(final String archiveName) {
+        this.archiveName = StringUtils.trimToNull(archiveName);
+    }
+
+    /**
+     * @return true when the files are packed into one archive instead of being uploaded one by one
+     */
+    public boolean isArchive() {
+        return StringUtils.isNotBlank(archiveName);
+    }
+
     public static boolean canUseExcludes() {
         return false;
     }
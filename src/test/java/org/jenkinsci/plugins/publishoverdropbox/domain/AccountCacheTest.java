@@ -0,0 +1,64 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import org.jenkinsci.plugins.publishoverdropbox.domain.model.AccountInfo;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class AccountCacheTest {
+
+    private static final String TOKEN = "token";
+    private long now;
+    private AccountCache sut;
+
+    @Before
+    public void setUp() {
+        now = 1000L;
+        sut = new AccountCache(500L) {
+            @Override
+            protected long currentTimeMillis() {
+                return now;
+            }
+        };
+    }
+
+    @Test
+    public void testCachedUntilExpired() {
+        // Arrange
+        AccountInfo account = account("{\"account_id\":\"id\"}");
+        sut.put(TOKEN, account);
+        // Act
+        now += 499L;
+        AccountInfo cached = sut.get(TOKEN);
+        now += 1L;
+        AccountInfo expired = sut.get(TOKEN);
+        // Assert
+        assertThat(cached, is(account));
+        assertThat(expired, is(nullValue()));
+    }
+
+    @Test
+    public void testInvalidate() {
+        // Arrange
+        sut.put(TOKEN, account("{\"account_id\":\"id\"}"));
+        // Act
+        sut.invalidate(TOKEN);
+        // Assert
+        assertThat(sut.get(TOKEN), is(nullValue()));
+    }
+
+    @Test
+    public void testDisabledAccountNotCached() {
+        // Act
+        sut.put(TOKEN, account("{\"account_id\":\"id\",\"disabled\":true}"));
+        // Assert
+        assertThat(sut.get(TOKEN), is(nullValue()));
+    }
+
+    private static AccountInfo account(String json) {
+        return DropboxV2.createGson().fromJson(json, AccountInfo.class);
+    }
+}
@@ -0,0 +1,112 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import hudson.Util;
+import org.apache.commons.io.FileUtils;
+import org.jenkinsci.plugins.publishoverdropbox.domain.transport.ConnectionPools;
+import org.jenkinsci.plugins.publishoverdropbox.domain.transport.TransportSettings;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class AgentUploadTest {
+
+    private FakeDropboxServer server;
+    private DropboxV2 controller;
+    private File file;
+    private byte[] content;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new FakeDropboxServer();
+        server.start();
+        controller = new DropboxV2(FakeDropboxServer.ACCESS_TOKEN);
+        controller.setServerUrls(server.getUrl(), server.getUrl());
+        controller.connect();
+        controller.makeDirectory("/builds");
+        controller.changeWorkingDirectory("/builds");
+        content = new byte[2500];
+        new Random(42).nextBytes(content);
+        file = File.createTempFile("artifact", ".bin");
+        FileUtils.writeByteArrayToFile(file, content);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+        file.delete();
+    }
+
+    @Test
+    public void testStoresOnAgent() throws Exception {
+        // Arrange
+        controller.chunkSize = 1000;
+        AgentUpload sut = controller.createAgentUpload("artifact.bin", content.length);
+        // Act
+        String sessionId = sut.invoke(file, null);
+        // Assert
+        assertThat(sessionId, is(nullValue()));
+        assertThat(server.getContent("/builds/artifact.bin"), is(content));
+    }
+
+    @Test
+    public void testStagedUploadIsCommittedByController() throws Exception {
+        // Arrange
+        controller.setBatchCommits(true);
+        AgentUpload sut = controller.createAgentUpload("artifact.bin", content.length);
+        // Act
+        String sessionId = sut.invoke(file, null);
+        controller.commitAgentUpload("artifact.bin", sessionId, content.length);
+        boolean beforeFlush = server.exists("/builds/artifact.bin");
+        controller.flush();
+        // Assert
+        assertThat(sessionId, is(notNullValue()));
+        assertThat(beforeFlush, is(false));
+        assertThat(server.getContent("/builds/artifact.bin"), is(content));
+    }
+
+    @Test
+    public void testControllerSettingsReachAgent() throws Exception {
+        // Arrange
+        final List<Long> acquired = new ArrayList<Long>();
+        RateLimiter limiter = new RateLimiter() {
+            @Override
+            public void acquire(long length) throws InterruptedException {
+                acquired.add(length);
+                super.acquire(length);
+            }
+        };
+        limiter.setRates("host", 1000, 0);
+        controller.setRateLimiter(limiter);
+        controller.setTransportSettings(new TransportSettings("agent-upload", false, 2, 60));
+        AgentUpload sut = controller.createAgentUpload("artifact.bin", content.length);
+        // Act
+        sut.invoke(file, null);
+        // Assert
+        assertThat(acquired, contains((long) content.length));
+        assertThat(ConnectionPools.forConfiguration("agent-upload", 2, 60).getStatistics().getRequests() > 0, is(true));
+        assertThat(RateLimiter.forToken(Util.getDigestOf(FakeDropboxServer.ACCESS_TOKEN)).getRequestsPerSecond(), is(1000.0));
+        assertThat(server.getContent("/builds/artifact.bin"), is(content));
+    }
+
+    @Test
+    public void testSerializable() throws Exception {
+        // Arrange
+        controller.setTransportSettings(new TransportSettings("agent-upload", true, 2, 60));
+        AgentUpload sut = controller.createAgentUpload("artifact.bin", content.length);
+        // Act
+        new ObjectOutputStream(new ByteArrayOutputStream()).writeObject(sut);
+    }
+}
@@ -0,0 +1,94 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Streams archives to the in-process {@link FakeDropboxServer}.
+ */
+public class ArchiveUploadTest {
+
+    private FakeDropboxServer server;
+    private DropboxV2 dropbox;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new FakeDropboxServer();
+        server.start();
+        dropbox = new DropboxV2(FakeDropboxServer.ACCESS_TOKEN);
+        dropbox.setServerUrls(server.getUrl(), server.getUrl());
+        dropbox.connect();
+        dropbox.makeDirectory("/builds");
+        dropbox.changeWorkingDirectory("/builds");
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void testStoreArchive() throws Exception {
+        // Arrange
+        dropbox.chunkSize = 4096;
+        ArchiveUpload sut = new ArchiveUpload(dropbox, "site.zip", ArchiveWriter.Format.ZIP);
+        byte[][] files = new byte[50][];
+        Random random = new Random(42);
+        // Act
+        for (int i = 0; i < files.length; i++) {
+            files[i] = new byte[random.nextInt(1000)];
+            random.nextBytes(files[i]);
+            sut.add("pages/" + i + ".html", files[i].length, 0, new ByteArrayInputStream(files[i]));
+        }
+        List<ArchiveWriter.Entry> manifest = sut.finish();
+        // Assert
+        assertThat(manifest.size(), is(files.length));
+        byte[] stored = server.getContent("/builds/site.zip");
+        assertThat((long) stored.length, is(sut.getArchiveSize()));
+        ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(stored));
+        for (int i = 0; i < files.length; i++) {
+            ZipEntry entry = zip.getNextEntry();
+            assertThat(entry.getName(), is("pages/" + i + ".html"));
+            assertThat(IOUtils.toByteArray(zip), is(files[i]));
+        }
+    }
+
+    @Test
+    public void testAbortedArchiveIsNotStored() throws Exception {
+        // Arrange
+        ArchiveUpload sut = new ArchiveUpload(dropbox, "site.tar.gz", ArchiveWriter.Format.TAR_GZ);
+        sut.add("index.html", 3, 0, new ByteArrayInputStream(new byte[3]));
+        InputStream failing = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Read failed");
+            }
+        };
+        // Act
+        try {
+            sut.add("broken.html", 3, 0, failing);
+        } catch (IOException expected) {
+            // The archive aborts itself
+        }
+        try {
+            sut.finish();
+        } catch (IOException expected) {
+            // Nothing to finish
+        }
+        // Assert
+        assertThat(server.exists("/builds/site.tar.gz"), is(false));
+    }
+}
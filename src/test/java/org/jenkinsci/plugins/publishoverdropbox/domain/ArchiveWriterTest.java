@@ -0,0 +1,82 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class ArchiveWriterTest {
+
+    @Test
+    public void testFormatForName() {
+        // Assert
+        assertThat(ArchiveWriter.Format.forName("site.zip"), is(ArchiveWriter.Format.ZIP));
+        assertThat(ArchiveWriter.Format.forName("site.TAR.GZ"), is(ArchiveWriter.Format.TAR_GZ));
+        assertThat(ArchiveWriter.Format.forName("site.tgz"), is(ArchiveWriter.Format.TAR_GZ));
+        assertThat(ArchiveWriter.Format.forName("site.tar"), is(nullValue()));
+    }
+
+    @Test
+    public void testZip() throws Exception {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ArchiveWriter sut = new ArchiveWriter(ArchiveWriter.Format.ZIP, out);
+        // Act
+        addEntries(sut);
+        sut.close();
+        // Assert
+        ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()));
+        ZipEntry first = zip.getNextEntry();
+        assertThat(first.getName(), is("index.html"));
+        assertThat(IOUtils.toString(zip, "UTF-8"), is("<html/>"));
+        assertThat(zip.getNextEntry().getName(), is("css/site.css"));
+        assertThat(zip.getNextEntry(), is(nullValue()));
+        assertThat(sut.getManifest().size(), is(2));
+        assertThat(sut.getManifest().get(1).getSize(), is(5L));
+    }
+
+    @Test
+    public void testTarGz() throws Exception {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ArchiveWriter sut = new ArchiveWriter(ArchiveWriter.Format.TAR_GZ, out);
+        // Act
+        addEntries(sut);
+        sut.close();
+        // Assert
+        TarArchiveInputStream tar = new TarArchiveInputStream(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())));
+        TarArchiveEntry first = tar.getNextTarEntry();
+        assertThat(first.getName(), is("index.html"));
+        assertThat(first.getModTime().getTime(), is(1000000L));
+        assertThat(IOUtils.toString(tar, "UTF-8"), is("<html/>"));
+        assertThat(tar.getNextTarEntry().getName(), is("css/site.css"));
+        assertThat(IOUtils.toString(tar, "UTF-8"), is("body{"));
+        assertThat(tar.getNextTarEntry(), is(nullValue()));
+    }
+
+    @Test(expected = IOException.class)
+    public void testTarEntryShorterThanLength() throws Exception {
+        // Arrange
+        ArchiveWriter sut = new ArchiveWriter(ArchiveWriter.Format.TAR_GZ, new ByteArrayOutputStream());
+        // Act
+        sut.addEntry("short.txt", 10, 0, new ByteArrayInputStream(new byte[5]));
+    }
+
+    private static void addEntries(ArchiveWriter sut) throws IOException {
+        byte[] index = "<html/>".getBytes("UTF-8");
+        byte[] css = "body{".getBytes("UTF-8");
+        sut.addEntry("index.html", index.length, 1000000L, new ByteArrayInputStream(index));
+        sut.addEntry("css/site.css", css.length, 1000000L, new ByteArrayInputStream(css));
+    }
+}
@@ -0,0 +1,74 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class ChunkSizeControllerTest {
+
+    private static final long MB = 1024 * 1024;
+    private static final long SECOND = 1000L * 1000 * 1000;
+    private ChunkSizeController sut;
+
+    @Before
+    public void setUp() {
+        sut = new ChunkSizeController(8 * MB);
+    }
+
+    @Test
+    public void testFastRequestsGrowAtMostTwice() {
+        // Act
+        sut.onSuccess(8 * MB, SECOND / 10);
+        // Assert
+        assertThat(sut.getChunkSize(), is(16 * MB));
+    }
+
+    @Test
+    public void testGrowthStopsAtRequestLimit() {
+        // Act
+        for (int i = 0; i < 10; i++) {
+            sut.onSuccess(sut.getChunkSize(), SECOND / 10);
+        }
+        // Assert
+        assertThat(sut.getChunkSize(), is(148 * MB));
+    }
+
+    @Test
+    public void testSlowRequestsShrinkToTargetDuration() {
+        // Arrange 1 MB/s
+        sut.onSuccess(8 * MB, 8 * SECOND);
+        // Assert
+        assertThat(sut.getChunkSize(), is(8 * MB));
+    }
+
+    @Test
+    public void testFailureHalvesInMultiplesOfFourMegaByte() {
+        // Arrange
+        sut = new ChunkSizeController(24 * MB);
+        // Act
+        sut.onFailure();
+        // Assert
+        assertThat(sut.getChunkSize(), is(12 * MB));
+    }
+
+    @Test
+    public void testNeverBelowFourMegaByte() {
+        // Act
+        sut.onFailure();
+        sut.onFailure();
+        // Assert
+        assertThat(sut.getChunkSize(), is(4 * MB));
+    }
+
+    @Test
+    public void testNoGrowthWhileFailing() {
+        // Arrange
+        sut.onFailure();
+        // Act
+        sut.onSuccess(4 * MB, SECOND / 10);
+        // Assert
+        assertThat(sut.getChunkSize(), is(4 * MB));
+    }
+}
@@ -0,0 +1,120 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class ChunkSourceTest {
+
+    private final byte[] content = new byte[1000];
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        file = File.createTempFile("chunk", ".bin");
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testStreamChunksInOrder() throws Exception {
+        // Arrange
+        ChunkSource sut = new StreamChunkSource(new ByteArrayInputStream(content), content.length);
+        // Act
+        byte[] first = IOUtils.toByteArray(sut.nextChunk(400));
+        byte[] second = IOUtils.toByteArray(sut.nextChunk(400));
+        byte[] last = IOUtils.toByteArray(sut.nextChunk(400));
+        // Assert
+        assertThat(first.length, is(400));
+        assertThat(second[0], is((byte) 400));
+        assertThat(last.length, is(200));
+        assertThat(last[199], is(content[999]));
+    }
+
+    @Test
+    public void testMappedChunksInOrder() throws Exception {
+        // Arrange
+        ChunkSource sut = new MappedChunkSource(file);
+        try {
+            // Act
+            byte[] first = IOUtils.toByteArray(sut.nextChunk(400));
+            byte[] second = IOUtils.toByteArray(sut.nextChunk(400));
+            byte[] last = IOUtils.toByteArray(sut.nextChunk(400));
+            // Assert
+            assertThat(sut.getLength(), is(1000L));
+            assertThat(first.length, is(400));
+            assertThat(second[0], is((byte) 400));
+            assertThat(last.length, is(200));
+            assertThat(last[199], is(content[999]));
+        } finally {
+            sut.close();
+        }
+    }
+
+    @Test
+    public void testChunkSkipStaysWithinChunk() throws Exception {
+        // Arrange
+        InputStream sut = new ChunkedInputStream(new ByteArrayInputStream(content), 100);
+        // Act
+        long skipped = sut.skip(150);
+        int read = sut.read();
+        // Assert
+        assertThat(skipped, is(100L));
+        assertThat(read, is(-1));
+    }
+
+    @Test
+    public void testMappedChunkSkip() throws Exception {
+        // Arrange
+        ChunkSource source = new MappedChunkSource(file);
+        try {
+            InputStream sut = source.nextChunk(100);
+            // Act
+            long skipped = sut.skip(10);
+            int read = sut.read();
+            // Assert
+            assertThat(skipped, is(10L));
+            assertThat(read, is(10));
+            assertThat(sut.available(), is(89));
+        } finally {
+            source.close();
+        }
+    }
+
+    @Test
+    public void testSmallFileIsStreamed() throws Exception {
+        // Act
+        ChunkSource sut = MappedChunkSource.open(file);
+        try {
+            byte[] chunk = IOUtils.toByteArray(sut.nextChunk(1000));
+            // Assert
+            assertThat(sut instanceof StreamChunkSource, is(true));
+            assertThat(sut.getIdentity() != null, is(true));
+            assertThat(chunk[999], is(content[999]));
+        } finally {
+            sut.close();
+        }
+    }
+}
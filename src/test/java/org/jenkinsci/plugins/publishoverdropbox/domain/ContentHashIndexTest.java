@@ -0,0 +1,57 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class ContentHashIndexTest {
+
+    private ContentHashIndex sut;
+
+    @Before
+    public void setUp() {
+        sut = new ContentHashIndex();
+    }
+
+    @Test
+    public void testListedFolderCoversSubfolders() {
+        // Act
+        sut.addFolder("/builds/latest");
+        // Assert
+        assertThat(sut.isListed("/Builds/Latest/deep/file.txt"), is(true));
+        assertThat(sut.isListed("/builds/latest-2/file.txt"), is(false));
+    }
+
+    @Test
+    public void testRootCoversEverything() {
+        // Act
+        sut.addFolder("");
+        // Assert
+        assertThat(sut.isListed("/file.txt"), is(true));
+    }
+
+    @Test
+    public void testLookupIgnoresCase() {
+        // Arrange
+        sut.addFile("/builds/file.txt", "hash");
+        // Act
+        String hash = sut.getContentHash("/Builds/File.txt");
+        // Assert
+        assertThat(hash, is("hash"));
+    }
+
+    @Test
+    public void testClearForgetsFolders() {
+        // Arrange
+        sut.addFolder("/builds");
+        sut.addFile("/builds/file.txt", "hash");
+        // Act
+        sut.clear();
+        // Assert
+        assertThat(sut.isListed("/builds/file.txt"), is(false));
+        assertThat(sut.getContentHash("/builds/file.txt"), nullValue());
+    }
+}
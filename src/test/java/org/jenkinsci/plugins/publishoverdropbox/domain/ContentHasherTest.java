@@ -0,0 +1,42 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class ContentHasherTest {
+
+    @Test
+    public void testEmptyContent() throws Exception {
+        // Arrange
+        InputStream content = new ByteArrayInputStream(new byte[0]);
+        // Act
+        String hash = ContentHasher.hash(content);
+        // Assert
+        assertThat(hash, is("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855"));
+    }
+
+    @Test
+    public void testSingleBlock() throws Exception {
+        // Arrange
+        InputStream content = new ByteArrayInputStream("abc".getBytes("UTF-8"));
+        // Act
+        String hash = ContentHasher.hash(content);
+        // Assert
+        assertThat(hash, is("4f8b42c22dd3729b519ba6f68d2da7cc5b2d606d05daed5ad5128cc03e6c6358"));
+    }
+
+    @Test
+    public void testSecondBlock() throws Exception {
+        // Arrange
+        InputStream content = new ByteArrayInputStream(new byte[ContentHasher.BLOCK_SIZE + 1]);
+        // Act
+        String hash = ContentHasher.hash(content);
+        // Assert
+        assertThat(hash, is("14a4d47f23a30177885d9820122f17d2d3a55fe63f7f5c27b95f689e0b2accd6"));
+    }
+}
@@ -0,0 +1,363 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import hudson.FilePath;
+import org.apache.commons.io.FileUtils;
+import org.jenkinsci.plugins.publishoverdropbox.domain.model.Metadata;
+import org.jenkinsci.plugins.publishoverdropbox.domain.model.RestException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Runs the Dropbox V2 client against the in-process {@link FakeDropboxServer}.
+ */
+public class DropboxV2ServerTest {
+
+    private static final String SOURCE = UploadJournal.identify("/workspace/resumed.bin", 6500L, 1234L);
+
+    private FakeDropboxServer server;
+    private DropboxV2 sut;
+    private File journalDirectory;
+    private UploadJournal journal;
+
+    @Before
+    public void setUp() throws Exception {
+        AccountCache.getInstance().clear();
+        server = new FakeDropboxServer();
+        server.start();
+        sut = new DropboxV2(FakeDropboxServer.ACCESS_TOKEN);
+        sut.setServerUrls(server.getUrl(), server.getUrl());
+        sut.connect();
+        journalDirectory = File.createTempFile("journal", "");
+        journalDirectory.delete();
+        journal = new UploadJournal(new FilePath(journalDirectory));
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+        FileUtils.deleteQuietly(journalDirectory);
+    }
+
+    @Test
+    public void testConnect() {
+        // Assert
+        assertThat(sut.isConnected(), is(true));
+    }
+
+    @Test
+    public void testConnectUsesCachedAccount() throws Exception {
+        // Arrange
+        DropboxV2 second = new DropboxV2(FakeDropboxServer.ACCESS_TOKEN);
+        second.setServerUrls(server.getUrl(), server.getUrl());
+        // Act
+        second.connect();
+        // Assert
+        assertThat(second.isConnected(), is(true));
+        assertThat(server.getRequestCount("users/get_current_account"), is(1));
+    }
+
+    @Test
+    public void testRejectedTokenLeavesCache() throws Exception {
+        // Arrange
+        AccountCache.getInstance().put("revoked", AccountCache.getInstance().get(FakeDropboxServer.ACCESS_TOKEN));
+        DropboxV2 revoked = new DropboxV2("revoked");
+        revoked.setServerUrls(server.getUrl(), server.getUrl());
+        revoked.connect();
+        // Act
+        try {
+            revoked.makeDirectory("/builds");
+        } catch (RestException expected) {
+            // The server does not know the token
+        }
+        // Assert
+        assertThat(AccountCache.getInstance().get("revoked"), is(nullValue()));
+    }
+
+    @Test(expected = RestException.class)
+    public void testWrongToken() throws Exception {
+        // Arrange
+        DropboxV2 wrong = new DropboxV2("wrong");
+        wrong.setServerUrls(server.getUrl(), server.getUrl());
+        // Act
+        wrong.connect();
+    }
+
+    @Test
+    public void testMakeAndChangeDirectory() throws Exception {
+        // Act
+        sut.makeDirectory("/Builds/Nightly");
+        boolean changed = sut.changeWorkingDirectory("/builds/nightly");
+        // Assert
+        assertThat(changed, is(true));
+        assertThat(sut.getWorkingFolder().getPathDisplay(), is("/Builds/Nightly"));
+    }
+
+    @Test
+    public void testStoreSingleFile() throws Exception {
+        // Arrange
+        sut.makeDirectory("/builds");
+        sut.changeWorkingDirectory("/builds");
+        byte[] content = "artifact".getBytes("UTF-8");
+        // Act
+        sut.storeFile("artifact.txt", new ByteArrayInputStream(content), content.length);
+        // Assert
+        assertThat(new String(server.getContent("/builds/artifact.txt"), "UTF-8"), is("artifact"));
+        assertThat(sut.findContentHash("artifact.txt"), is(ContentHasher.hash(new ByteArrayInputStream(content))));
+    }
+
+    @Test
+    public void testStoreChunkedFile() throws Exception {
+        // Arrange
+        sut.makeDirectory("/builds");
+        sut.changeWorkingDirectory("/builds");
+        sut.chunkSize = 1000;
+        byte[] content = new byte[4500];
+        new Random(42).nextBytes(content);
+        // Act
+        sut.storeFile("chunked.bin", new ByteArrayInputStream(content), content.length);
+        // Assert
+        assertThat(server.getContent("/builds/chunked.bin"), is(content));
+        assertThat(server.getRequestCount("files/upload_session/append_v2"), is(3));
+    }
+
+    @Test
+    public void testStoreConcurrentChunks() throws Exception {
+        // Arrange
+        sut.makeDirectory("/builds");
+        sut.changeWorkingDirectory("/builds");
+        sut.chunkSize = 4 * 1024 * 1024;
+        sut.setChunkWorkers(3);
+        byte[] content = new byte[3 * 4 * 1024 * 1024 + 1000];
+        new Random(42).nextBytes(content);
+        // Act
+        sut.storeFile("concurrent.bin", new ByteArrayInputStream(content), content.length);
+        // Assert
+        assertThat(server.getContent("/builds/concurrent.bin"), is(content));
+        assertThat(server.getRequestCount("files/upload_session/append_v2"), is(4));
+        assertThat(server.getRequestCount("files/upload_session/finish"), is(1));
+    }
+
+    @Test
+    public void testFailedResumeKeepsJournal() throws Exception {
+        // Arrange
+        sut.makeDirectory("/builds");
+        sut.changeWorkingDirectory("/builds");
+        sut.chunkSize = 1000;
+        sut.setUploadJournal(journal);
+        byte[] content = new byte[6500];
+        new Random(42).nextBytes(content);
+        server.setFailure("files/upload_session/append_v2", 2);
+        store("resumed.bin", content);
+        server.setFailure("files/upload_session/append_v2", 4);
+        store("resumed.bin", content);
+        server.setFailure(null, 0);
+        // Act
+        sut.storeFile("resumed.bin", new StreamChunkSource(new ByteArrayInputStream(content), content.length, SOURCE));
+        // Assert
+        assertThat(server.getContent("/builds/resumed.bin"), is(content));
+        assertThat(server.getRequestCount("files/upload_session/start"), is(1));
+        assertThat(server.getRequestCount("files/upload_session/append_v2"), is(7));
+        assertThat(journal.find("/builds/resumed.bin", SOURCE), nullValue());
+    }
+
+    @Test
+    public void testRejectedSessionClearsJournal() throws Exception {
+        // Arrange
+        sut.makeDirectory("/builds");
+        sut.changeWorkingDirectory("/builds");
+        sut.chunkSize = 1000;
+        sut.setUploadJournal(journal);
+        UploadJournal.Entry expired = new UploadJournal.Entry("/builds/resumed.bin", SOURCE, "session-expired", false, 1000L);
+        expired.setOffset(2000L);
+        journal.save(expired);
+        // Act
+        store("resumed.bin", new byte[6500]);
+        // Assert
+        assertThat(journal.find("/builds/resumed.bin", SOURCE), nullValue());
+    }
+
+    @Test
+    public void testStoreStream() throws Exception {
+        // Arrange
+        sut.makeDirectory("/builds");
+        sut.changeWorkingDirectory("/builds");
+        sut.chunkSize = 1000;
+        byte[] content = new byte[4500];
+        new Random(42).nextBytes(content);
+        // Act
+        sut.storeStream("streamed.bin", new ByteArrayInputStream(content));
+        // Assert
+        assertThat(server.getContent("/builds/streamed.bin"), is(content));
+        assertThat(server.getRequestCount("files/upload_session/append_v2"), is(3));
+    }
+
+    @Test
+    public void testStoreShortStream() throws Exception {
+        // Arrange
+        sut.makeDirectory("/builds");
+        sut.changeWorkingDirectory("/builds");
+        byte[] content = "streamed".getBytes("UTF-8");
+        // Act
+        sut.storeStream("streamed.txt", new ByteArrayInputStream(content));
+        // Assert
+        assertThat(new String(server.getContent("/builds/streamed.txt"), "UTF-8"), is("streamed"));
+        assertThat(server.getRequestCount("files/upload_session/start"), is(0));
+    }
+
+    @Test
+    public void testBatchCommits() throws Exception {
+        // Arrange
+        sut.makeDirectory("/builds");
+        sut.changeWorkingDirectory("/builds");
+        sut.setBatchCommits(true);
+        // Act
+        for (int i = 0; i < 3; i++) {
+            sut.storeFile("file" + i, new ByteArrayInputStream(new byte[]{(byte) i}), 1);
+        }
+        sut.flush();
+        // Assert
+        assertThat(server.exists("/builds/file2"), is(true));
+        assertThat(server.getRequestCount("files/upload_session/finish_batch"), is(1));
+    }
+
+    @Test
+    public void testBatchCommitNamesFailedFiles() throws Exception {
+        // Arrange
+        sut.makeDirectory("/builds/file1");
+        sut.changeWorkingDirectory("/builds");
+        sut.setBatchCommits(true);
+        for (int i = 0; i < 3; i++) {
+            sut.storeFile("file" + i, new ByteArrayInputStream(new byte[]{(byte) i}), 1);
+        }
+        // Act
+        RestException failure = null;
+        try {
+            sut.flush();
+        } catch (RestException e) {
+            failure = e;
+        }
+        // Assert
+        assertThat(failure.getMessage().contains("/builds/file1"), is(true));
+        assertThat(failure.getMessage().contains("/builds/file2"), is(false));
+        assertThat(server.getContent("/builds/file2"), is(new byte[]{2}));
+    }
+
+    @Test
+    public void testListFolderPages() throws Exception {
+        // Arrange
+        server.setPageSize(2);
+        for (int i = 0; i < 5; i++) {
+            server.putFile("/builds/" + i + "/artifact", new byte[1], new Date());
+        }
+        final List<String> paths = new ArrayList<String>();
+        // Act
+        sut.listFolder("/builds", true, new MetadataCallback() {
+            @Override
+            public boolean onEntry(@Nonnull Metadata entry) {
+                paths.add(entry.getPathLower());
+                return true;
+            }
+        });
+        // Assert
+        assertThat(paths.size(), is(10));
+        assertThat(server.getRequestCount("files/list_folder/continue"), is(4));
+    }
+
+    @Test
+    public void testPruneFolder() throws Exception {
+        // Arrange
+        Date old = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(10));
+        server.putFile("/builds/1/artifact", new byte[1], old);
+        server.putFile("/builds/2/artifact", new byte[1], new Date());
+        // Act
+        sut.pruneFolder("/builds", 5);
+        // Assert
+        assertThat(server.exists("/builds/1"), is(false));
+        assertThat(server.exists("/builds/2/artifact"), is(true));
+    }
+
+    @Test
+    public void testCleanWorkingFolder() throws Exception {
+        // Arrange
+        server.putFile("/builds/a", new byte[1], new Date());
+        server.putFile("/builds/b/c", new byte[1], new Date());
+        sut.changeWorkingDirectory("/builds");
+        // Act
+        sut.cleanWorkingFolder();
+        // Assert
+        assertThat(server.exists("/builds"), is(true));
+        assertThat(server.exists("/builds/a"), is(false));
+        assertThat(server.exists("/builds/b/c"), is(false));
+    }
+
+    @Test
+    public void testMirrorWithOneListing() throws Exception {
+        // Arrange
+        server.putFile("/site/index.html", "<html/>".getBytes("UTF-8"), new Date());
+        server.putFile("/site/old/page.html", new byte[3], new Date());
+        sut.changeWorkingDirectory("/site");
+        // Act
+        MirrorIndex index = sut.indexMirror("/site");
+        index.keep("/site/index.html");
+        String hash = sut.findContentHash("index.html");
+        sut.deleteBatch(index.getDeletions());
+        // Assert
+        assertThat(index.hasFile("/site/index.html", 7), is(true));
+        assertThat(hash, is(ContentHasher.hash(new ByteArrayInputStream("<html/>".getBytes("UTF-8")))));
+        assertThat(server.getRequestCount("files/list_folder"), is(1));
+        assertThat(server.exists("/site/index.html"), is(true));
+        assertThat(server.exists("/site/old"), is(false));
+    }
+
+    @Test
+    public void testMirrorOfMissingFolder() throws Exception {
+        // Act
+        MirrorIndex index = sut.indexMirror("/site");
+        // Assert
+        assertThat(index.getDeletions().isEmpty(), is(true));
+        assertThat(server.getRequestCount("files/list_folder"), is(0));
+    }
+
+    @Test
+    public void testIncrementalWithOneListing() throws Exception {
+        // Arrange
+        server.putFile("/site/index.html", "<html/>".getBytes("UTF-8"), new Date());
+        server.putFile("/site/css/main.css", new byte[3], new Date());
+        server.putFile("/site/js/lib/app.js", new byte[5], new Date());
+        sut.changeWorkingDirectory("/site");
+        // Act
+        sut.indexContentHashes("/site");
+        String script = sut.findContentHash("/site/js/lib/app.js");
+        String style = sut.findContentHash("/site/css/main.css");
+        String page = sut.findContentHash("index.html");
+        String missing = sut.findContentHash("/site/img/logo.png");
+        // Assert
+        assertThat(page, is(ContentHasher.hash(new ByteArrayInputStream("<html/>".getBytes("UTF-8")))));
+        assertThat(style, is(ContentHasher.hash(new ByteArrayInputStream(new byte[3]))));
+        assertThat(script, is(ContentHasher.hash(new ByteArrayInputStream(new byte[5]))));
+        assertThat(missing, is(nullValue()));
+        assertThat(server.getRequestCount("files/list_folder"), is(1));
+    }
+
+    private void store(String name, byte[] content) {
+        try {
+            sut.storeFile(name, new StreamChunkSource(new ByteArrayInputStream(content), content.length, SOURCE));
+        } catch (RestException e) {
+            // Expected, the journal keeps the progress
+        }
+    }
+}
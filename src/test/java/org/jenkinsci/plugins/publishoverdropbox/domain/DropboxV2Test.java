@@ -1,7 +1,6 @@
 package org.jenkinsci.plugins.publishoverdropbox.domain;
 
 import org.apache.commons.lang.StringUtils;
-import org.jenkinsci.plugins.publishoverdropbox.domain.model.FolderContent;
 import org.jenkinsci.plugins.publishoverdropbox.domain.model.FolderMetadata;
 import org.jenkinsci.plugins.publishoverdropbox.domain.model.Metadata;
 import org.jenkinsci.plugins.publishoverdropbox.domain.model.RestException;
@@ -10,11 +9,13 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import javax.annotation.Nonnull;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
@@ -141,6 +142,25 @@ public class DropboxV2Test {
         assertThat(metaData.getSize(), is((long) bytes.length));
     }
 
+    @Test
+    public void testStoreBatchedSmallFiles() throws RestException, UnsupportedEncodingException {
+        // Arrange
+        sut.makeDirectory("tests");
+        sut.changeWorkingDirectory("tests");
+        sut.setBatchCommits(true);
+        final byte[] bytes = "Hello world".getBytes("UTF-8");
+        // Act
+        for (int i = 0; i < 3; i++) {
+            sut.storeFile("batchfile" + i + ".txt", new ByteArrayInputStream(bytes), bytes.length);
+        }
+        sut.flush();
+        // Assert
+        for (int i = 0; i < 3; i++) {
+            Metadata metaData = sut.retrieveMetaData("/tests/batchfile" + i + ".txt");
+            assertThat(metaData.getSize(), is((long) bytes.length));
+        }
+    }
+
     @Test
     public void testCleanWorkingFolder() throws RestException, UnsupportedEncodingException {
         // Arrange
@@ -154,8 +174,7 @@ public class DropboxV2Test {
         // Assert
         FolderMetadata metaData = (FolderMetadata) sut.retrieveMetaData("/tests");
         assertThat(metaData.getName(), is("tests"));
-        FolderContent contents = sut.listFilesOfFolder(metaData);
-        assertThat(contents.getEntries().size(), is(0));
+        assertThat(countEntries(metaData), is(0));
     }
 
     @Test
@@ -202,6 +221,26 @@ public class DropboxV2Test {
     }
 
 
+    @Test
+    public void testUploadConcurrentChunks() throws RestException {
+        // Arrange
+        sut.makeDirectory("tests");
+        sut.changeWorkingDirectory("tests");
+        final byte[] bytes = new byte[(int) (2.5 * sut.chunkSize)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes);
+        sut.setChunkWorkers(3);
+        // Act
+        sut.storeFile("concurrent-file.bin", inputStream, bytes.length);
+        // Assert
+        Metadata metaData = sut.retrieveMetaData("/tests/concurrent-file.bin");
+        assertThat(metaData.getName(), is("concurrent-file.bin"));
+        assertThat(metaData.getSize(), is((long) bytes.length));
+    }
+
+
     @Test
     public void testPruneFolderLeavesFiles() throws RestException, UnsupportedEncodingException {
         // Arrange
@@ -215,8 +254,7 @@ public class DropboxV2Test {
         // Assert
         FolderMetadata metaData = (FolderMetadata) sut.retrieveMetaData("/tests");
         assertThat(metaData.getName(), is("tests"));
-        FolderContent contents = sut.listFilesOfFolder(metaData);
-        assertThat(contents.getEntries().size(), is(1));
+        assertThat(countEntries(metaData), is(1));
     }
 
     @Test
@@ -241,4 +279,15 @@ public class DropboxV2Test {
         assertThat(sut.isConnected(), is(false));
     }
 
-}
\ No newline at end of file
+    private int countEntries(FolderMetadata folder) throws RestException {
+        final AtomicInteger count = new AtomicInteger();
+        sut.listFolder(folder.getPathLower(), false, new MetadataCallback() {
+            @Override
+            public boolean onEntry(@Nonnull Metadata entry) {
+                count.incrementAndGet();
+                return true;
+            }
+        });
+        return count.get();
+    }
+}
@@ -0,0 +1,687 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.IOUtils;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process stand-in for the Dropbox v2 API on top of an in-memory tree. Point a {@link DropboxV2} at it with
+ * {@link DropboxV2#setServerUrls(String, String)}. Latency and bandwidth are configurable to measure the publisher
+ * offline. Start it with {@link #startHttp2()} to serve HTTP/2 over cleartext as well.
+ */
+public class FakeDropboxServer {
+
+    public static final String ACCESS_TOKEN = "fake-access-token";
+    private static final String PREFIX = "/2/";
+    private static final String ROOT = "";
+    private static final String SEPARATOR = "/";
+    private static final int BLOCK = 64 * 1024;
+    private static final int CONCURRENT_CHUNK = 4 * 1024 * 1024;
+
+    private final TreeMap<String, Node> tree = new TreeMap<String, Node>();
+    private final Map<String, UploadSession> sessions = new HashMap<String, UploadSession>();
+    private final Map<String, Listing> cursors = new HashMap<String, Listing>();
+    private final List<String> changes = new ArrayList<String>();
+    private final Map<String, JsonObject> jobs = new HashMap<String, JsonObject>();
+    private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<String, AtomicInteger>();
+    private final AtomicInteger ids = new AtomicInteger();
+    private final Set<String> protocols = new CopyOnWriteArraySet<String>();
+    private HttpServer server;
+    private ExecutorService executor;
+    private Server http2Server;
+    private ServerConnector http2Connector;
+    private volatile long latencyMillis;
+    private volatile long bytesPerSecond;
+    private volatile int pageSize = 500;
+    private volatile String failingEndpoint;
+    private volatile int failingAfter;
+
+    /**
+     * Sequential sessions accept appends at their end only, concurrent sessions keep their chunks by offset. Both
+     * reject appends once closed.
+     */
+    private static class UploadSession {
+        final boolean concurrent;
+        final TreeMap<Long, byte[]> chunks = new TreeMap<Long, byte[]>();
+        long size;
+        boolean closed;
+
+        UploadSession(boolean concurrent) {
+            this.concurrent = concurrent;
+        }
+    }
+
+    private static class Listing {
+        final List<JsonObject> remaining;
+        final String path;
+        final boolean recursive;
+
+        Listing(List<JsonObject> remaining, String path, boolean recursive) {
+            this.remaining = remaining;
+            this.path = path;
+            this.recursive = recursive;
+        }
+    }
+
+    private static class Node {
+        final String pathDisplay;
+        final boolean folder;
+        final String id;
+        byte[] content;
+        long modified;
+
+        Node(String pathDisplay, boolean folder, String id) {
+            this.pathDisplay = pathDisplay;
+            this.folder = folder;
+            this.id = id;
+        }
+    }
+
+    public void start() throws IOException {
+        executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "fake-dropbox");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(executor);
+        server.createContext(PREFIX, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    dispatch(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * Serve HTTP/1.1 and HTTP/2 over cleartext (h2c) on the same port, clients upgrade to HTTP/2 on their first
+     * request.
+     */
+    public void startHttp2() throws Exception {
+        http2Server = new Server();
+        HttpConfiguration configuration = new HttpConfiguration();
+        http2Connector = new ServerConnector(http2Server, new HttpConnectionFactory(configuration), new HTTP2CServerConnectionFactory(configuration));
+        http2Connector.setHost("127.0.0.1");
+        http2Server.addConnector(http2Connector);
+        http2Server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException {
+                protocols.add(request.getProtocol());
+                Reply reply = dispatch(request.getRequestURI(), request.getHeader("Authorization"), request.getHeader("Dropbox-API-Arg"), request.getInputStream());
+                byte[] json = reply.body.toString().getBytes("UTF-8");
+                response.setStatus(reply.code);
+                response.setContentType("application/json");
+                response.setContentLength(json.length);
+                response.getOutputStream().write(json);
+                baseRequest.setHandled(true);
+            }
+        });
+        http2Server.start();
+    }
+
+    public void stop() {
+        if (http2Server != null) {
+            try {
+                http2Server.stop();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        } else {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return base url for both the RPC and the upload endpoints
+     */
+    public String getUrl() {
+        int port = http2Server != null ? http2Connector.getLocalPort() : server.getAddress().getPort();
+        return "http://127.0.0.1:" + port;
+    }
+
+    /**
+     * @return protocols of the requests received by a server started with {@link #startHttp2()}
+     */
+    public Set<String> getProtocols() {
+        return protocols;
+    }
+
+    /**
+     * @param latencyMillis delay before each response
+     */
+    public void setLatency(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * @param bytesPerSecond speed at which request bodies are read, 0 for unlimited
+     */
+    public void setBandwidth(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * @param pageSize entries per list_folder response
+     */
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Answer the requests of an endpoint with an error, once it has succeeded a number of times.
+     *
+     * @param endpoint for example files/upload_session/append_v2, or null to stop failing
+     * @param after    number of requests that still succeed
+     */
+    public void setFailure(String endpoint, int after) {
+        failingAfter = after;
+        failingEndpoint = endpoint;
+    }
+
+    public synchronized void putFile(String path, byte[] content, Date modified) {
+        Node node = store(path, content);
+        node.modified = modified.getTime();
+    }
+
+    public synchronized byte[] getContent(String path) {
+        Node node = tree.get(path.toLowerCase(Locale.ENGLISH));
+        return node == null || node.folder ? null : node.content;
+    }
+
+    public synchronized boolean exists(String path) {
+        return tree.containsKey(path.toLowerCase(Locale.ENGLISH));
+    }
+
+    /**
+     * @param endpoint for example files/list_folder
+     * @return number of requests received by the endpoint
+     */
+    public int getRequestCount(String endpoint) {
+        AtomicInteger count = requests.get(endpoint);
+        return count == null ? 0 : count.get();
+    }
+
+    private void dispatch(HttpExchange exchange) throws IOException {
+        Reply reply = dispatch(exchange.getRequestURI().getPath(), exchange.getRequestHeaders().getFirst("Authorization"),
+                exchange.getRequestHeaders().getFirst("Dropbox-API-Arg"), exchange.getRequestBody());
+        respond(exchange, reply.code, reply.body);
+    }
+
+    private Reply dispatch(String path, String authorization, String argument, InputStream in) throws IOException {
+        String endpoint = path.substring(PREFIX.length());
+        AtomicInteger count = requests.get(endpoint);
+        if (count == null) {
+            requests.put(endpoint, new AtomicInteger());
+            count = requests.get(endpoint);
+        }
+        int received = count.incrementAndGet();
+        byte[] body = readBody(in);
+        if (latencyMillis > 0) {
+            sleep(latencyMillis);
+        }
+        if (!("Bearer " + ACCESS_TOKEN).equals(authorization)) {
+            return new Reply(401, error("invalid_access_token", null));
+        }
+        if (endpoint.equals(failingEndpoint) && received > failingAfter) {
+            return new Reply(400, error("fake_failure", null));
+        }
+        JsonObject arg = parse(argument != null ? argument.getBytes("UTF-8") : body);
+        try {
+            JsonElement response;
+            synchronized (this) {
+                response = execute(endpoint, arg, body);
+            }
+            return new Reply(200, response);
+        } catch (ApiError e) {
+            return new Reply(e.code, e.body);
+        }
+    }
+
+    private JsonElement execute(String endpoint, JsonObject arg, byte[] body) throws ApiError, IOException {
+        if ("users/get_current_account".equals(endpoint)) {
+            JsonObject account = new JsonObject();
+            account.addProperty("account_id", "dbid:fake");
+            account.addProperty("disabled", false);
+            return account;
+        } else if ("files/get_metadata".equals(endpoint)) {
+            return metadata(existing(path(arg)));
+        } else if ("files/list_folder".equals(endpoint)) {
+            return listFolder(path(arg), arg.has("recursive") && arg.get("recursive").getAsBoolean());
+        } else if ("files/list_folder/continue".equals(endpoint)) {
+            return page(arg.get("cursor").getAsString());
+        } else if ("files/list_folder/get_latest_cursor".equals(endpoint)) {
+            String path = path(arg);
+            if (!ROOT.equals(path) && !existing(path).folder) {
+                throw new ApiError(409, error("path", "not_folder"));
+            }
+            JsonObject response = new JsonObject();
+            response.addProperty("cursor", changesCursor(path, arg.has("recursive") && arg.get("recursive").getAsBoolean()));
+            return response;
+        } else if ("files/create_folder".equals(endpoint)) {
+            if (tree.containsKey(path(arg))) {
+                throw new ApiError(409, error("path", "conflict"));
+            }
+            return metadata(folder(arg.get("path").getAsString()));
+        } else if ("files/delete".equals(endpoint)) {
+            return delete(path(arg));
+        } else if ("files/delete_batch".equals(endpoint)) {
+            JsonArray entries = new JsonArray();
+            for (JsonElement entry : arg.getAsJsonArray("entries")) {
+                entries.add(batchEntry(delete(path(entry.getAsJsonObject()))));
+            }
+            return job(entries);
+        } else if ("files/upload".equals(endpoint)) {
+            return metadata(store(arg.get("path").getAsString(), body));
+        } else if ("files/upload_session/start".equals(endpoint)) {
+            String sessionId = "session-" + ids.incrementAndGet();
+            boolean concurrent = arg.has("session_type") && "concurrent".equals(arg.get("session_type").getAsString());
+            if (concurrent && body.length > 0) {
+                throw new ApiError(400, error("concurrent_session_data_not_allowed", null));
+            }
+            UploadSession session = new UploadSession(concurrent);
+            if (body.length > 0) {
+                session.chunks.put(0L, body);
+                session.size = body.length;
+            }
+            session.closed = arg.has("close") && arg.get("close").getAsBoolean();
+            sessions.put(sessionId, session);
+            JsonObject response = new JsonObject();
+            response.addProperty("session_id", sessionId);
+            return response;
+        } else if ("files/upload_session/append_v2".equals(endpoint)) {
+            append(arg.getAsJsonObject("cursor"), body, arg.has("close") && arg.get("close").getAsBoolean());
+            return JsonNull.INSTANCE;
+        } else if ("files/upload_session/finish".equals(endpoint)) {
+            return metadata(finish(arg, body));
+        } else if ("files/upload_session/finish_batch".equals(endpoint)) {
+            JsonArray entries = new JsonArray();
+            for (JsonElement entry : arg.getAsJsonArray("entries")) {
+                try {
+                    entries.add(batchEntry(metadata(finish(entry.getAsJsonObject(), new byte[0]))));
+                } catch (ApiError e) {
+                    JsonObject failure = new JsonObject();
+                    failure.addProperty(".tag", "failure");
+                    failure.add("failure", e.body.get("error"));
+                    entries.add(failure);
+                }
+            }
+            return job(entries);
+        } else if ("files/delete_batch/check".equals(endpoint) || "files/upload_session/finish_batch/check".equals(endpoint)) {
+            JsonObject status = jobs.remove(arg.get("async_job_id").getAsString());
+            if (status == null) {
+                throw new ApiError(409, error("invalid_async_job_id", null));
+            }
+            return status;
+        }
+        throw new ApiError(400, new JsonObject());
+    }
+
+    private JsonObject listFolder(String path, boolean recursive) throws ApiError {
+        if (!ROOT.equals(path) && !existing(path).folder) {
+            throw new ApiError(409, error("path", "not_folder"));
+        }
+        List<JsonObject> entries = new ArrayList<JsonObject>();
+        String prefix = path + SEPARATOR;
+        for (Map.Entry<String, Node> entry : tree.tailMap(prefix).entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+            if (recursive || key.indexOf(SEPARATOR, prefix.length()) < 0) {
+                entries.add(metadata(entry.getValue()));
+            }
+        }
+        String cursor = "cursor-" + ids.incrementAndGet();
+        cursors.put(cursor, new Listing(entries, path, recursive));
+        return page(cursor);
+    }
+
+    /**
+     * A cursor that lists the changes made below a path after the cursor was handed out.
+     */
+    private String changesCursor(String path, boolean recursive) {
+        return "changes:" + changes.size() + ":" + recursive + ":" + path;
+    }
+
+    private JsonObject page(String cursor) throws ApiError {
+        if (cursor.startsWith("changes:")) {
+            String[] parts = cursor.split(":", 4);
+            cursor = "cursor-" + ids.incrementAndGet();
+            cursors.put(cursor, changesSince(Integer.parseInt(parts[1]), parts[3], Boolean.parseBoolean(parts[2])));
+        }
+        Listing listing = cursors.remove(cursor);
+        if (listing == null) {
+            throw new ApiError(409, error("reset", null));
+        }
+        List<JsonObject> remaining = listing.remaining;
+        JsonArray entries = new JsonArray();
+        int size = Math.min(pageSize, remaining.size());
+        for (JsonObject entry : remaining.subList(0, size)) {
+            entries.add(entry);
+        }
+        String next;
+        if (size < remaining.size()) {
+            next = "cursor-" + ids.incrementAndGet();
+            cursors.put(next, new Listing(new ArrayList<JsonObject>(remaining.subList(size, remaining.size())), listing.path, listing.recursive));
+        } else {
+            next = changesCursor(listing.path, listing.recursive);
+        }
+        JsonObject page = new JsonObject();
+        page.add("entries", entries);
+        page.addProperty("cursor", next);
+        page.addProperty("has_more", size < remaining.size());
+        return page;
+    }
+
+    private Listing changesSince(int index, String path, boolean recursive) throws ApiError {
+        Set<String> changed = new LinkedHashSet<String>();
+        String prefix = path + SEPARATOR;
+        for (String key : changes.subList(Math.min(index, changes.size()), changes.size())) {
+            if (key.startsWith(prefix) && (recursive || key.indexOf(SEPARATOR, prefix.length()) < 0)) {
+                // The latest change of a path is listed last
+                changed.remove(key);
+                changed.add(key);
+            }
+        }
+        List<JsonObject> entries = new ArrayList<JsonObject>();
+        for (String key : changed) {
+            Node node = tree.get(key);
+            if (node != null) {
+                entries.add(metadata(node));
+            } else {
+                JsonObject deleted = new JsonObject();
+                deleted.addProperty(".tag", "deleted");
+                deleted.addProperty("name", key.substring(key.lastIndexOf(SEPARATOR) + 1));
+                deleted.addProperty("path_lower", key);
+                deleted.addProperty("path_display", key);
+                entries.add(deleted);
+            }
+        }
+        return new Listing(entries, path, recursive);
+    }
+
+    private JsonObject delete(String path) throws ApiError {
+        JsonObject metadata = metadata(existing(path));
+        String prefix = path + SEPARATOR;
+        tree.remove(path);
+        changes.add(path);
+        Iterator<String> keys = tree.tailMap(prefix).keySet().iterator();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+            keys.remove();
+            changes.add(key);
+        }
+        return metadata;
+    }
+
+    private void append(JsonObject cursor, byte[] body, boolean close) throws ApiError {
+        UploadSession session = session(cursor);
+        if (session.closed) {
+            throw new ApiError(409, error("closed", null));
+        }
+        long offset = cursor.get("offset").getAsLong();
+        if (session.concurrent) {
+            if (!close && body.length % CONCURRENT_CHUNK != 0) {
+                throw new ApiError(400, error("concurrent_session_invalid_data_size", null));
+            }
+            if (session.chunks.containsKey(offset)) {
+                throw new ApiError(409, error("incorrect_offset", null));
+            }
+        } else if (offset != session.size) {
+            JsonObject error = error("incorrect_offset", null);
+            error.getAsJsonObject("error").addProperty("correct_offset", session.size);
+            throw new ApiError(409, error);
+        }
+        session.chunks.put(offset, body);
+        session.size += body.length;
+        session.closed = close;
+    }
+
+    private Node finish(JsonObject arg, byte[] body) throws ApiError, IOException {
+        JsonObject cursor = arg.getAsJsonObject("cursor");
+        UploadSession session = session(cursor);
+        if (session.concurrent) {
+            if (!session.closed || body.length > 0) {
+                throw new ApiError(409, error("concurrent_session_not_closed", null));
+            }
+        } else if (body.length > 0 || !session.closed) {
+            append(cursor, body, true);
+        }
+        // The chunks have to cover the whole file without gaps
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        for (Map.Entry<Long, byte[]> chunk : session.chunks.entrySet()) {
+            if (chunk.getKey() != content.size()) {
+                throw new ApiError(409, error("concurrent_session_missing_data", null));
+            }
+            content.write(chunk.getValue());
+        }
+        if (content.size() != cursor.get("offset").getAsLong() + body.length) {
+            throw new ApiError(409, error("incorrect_offset", null));
+        }
+        Node existing = tree.get(arg.getAsJsonObject("commit").get("path").getAsString().toLowerCase(Locale.ENGLISH));
+        if (existing != null && existing.folder) {
+            throw new ApiError(409, error("path", "conflict"));
+        }
+        sessions.remove(cursor.get("session_id").getAsString());
+        return store(arg.getAsJsonObject("commit").get("path").getAsString(), content.toByteArray());
+    }
+
+    private UploadSession session(JsonObject cursor) throws ApiError {
+        UploadSession session = sessions.get(cursor.get("session_id").getAsString());
+        if (session == null) {
+            throw new ApiError(409, error("not_found", null));
+        }
+        return session;
+    }
+
+    private JsonObject job(JsonArray entries) {
+        String jobId = "job-" + ids.incrementAndGet();
+        JsonObject complete = new JsonObject();
+        complete.addProperty(".tag", "complete");
+        complete.add("entries", entries);
+        jobs.put(jobId, complete);
+        JsonObject started = new JsonObject();
+        started.addProperty(".tag", "async_job_id");
+        started.addProperty("async_job_id", jobId);
+        return started;
+    }
+
+    private static JsonObject batchEntry(JsonObject metadata) {
+        JsonObject entry = new JsonObject();
+        entry.addProperty(".tag", "success");
+        entry.add("metadata", metadata);
+        return entry;
+    }
+
+    private Node store(String pathDisplay, byte[] content) {
+        String parent = pathDisplay.substring(0, pathDisplay.lastIndexOf(SEPARATOR));
+        if (!parent.isEmpty()) {
+            folder(parent);
+        }
+        String key = pathDisplay.toLowerCase(Locale.ENGLISH);
+        Node node = tree.get(key);
+        if (node == null || node.folder) {
+            node = new Node(pathDisplay, false, "id:" + ids.incrementAndGet());
+            tree.put(key, node);
+        }
+        node.content = content;
+        node.modified = System.currentTimeMillis();
+        changes.add(key);
+        return node;
+    }
+
+    private Node folder(String pathDisplay) {
+        String key = pathDisplay.toLowerCase(Locale.ENGLISH);
+        Node node = tree.get(key);
+        if (node == null) {
+            String parent = pathDisplay.substring(0, pathDisplay.lastIndexOf(SEPARATOR));
+            if (!parent.isEmpty()) {
+                folder(parent);
+            }
+            node = new Node(pathDisplay, true, "id:" + ids.incrementAndGet());
+            tree.put(key, node);
+            changes.add(key);
+        }
+        return node;
+    }
+
+    private Node existing(String path) throws ApiError {
+        Node node = tree.get(path);
+        if (node == null) {
+            throw new ApiError(409, error("path", "not_found"));
+        }
+        return node;
+    }
+
+    private static JsonObject metadata(Node node) throws ApiError {
+        JsonObject metadata = new JsonObject();
+        String name = node.pathDisplay.substring(node.pathDisplay.lastIndexOf(SEPARATOR) + 1);
+        metadata.addProperty(".tag", node.folder ? "folder" : "file");
+        metadata.addProperty("name", name);
+        metadata.addProperty("id", node.id);
+        metadata.addProperty("path_lower", node.pathDisplay.toLowerCase(Locale.ENGLISH));
+        metadata.addProperty("path_display", node.pathDisplay);
+        if (!node.folder) {
+            SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+            format.setTimeZone(TimeZone.getTimeZone("UTC"));
+            String modified = format.format(new Date(node.modified));
+            metadata.addProperty("client_modified", modified);
+            metadata.addProperty("server_modified", modified);
+            metadata.addProperty("rev", Long.toHexString(node.modified));
+            metadata.addProperty("size", node.content.length);
+            try {
+                metadata.addProperty("content_hash", ContentHasher.hash(new ByteArrayInputStream(node.content)));
+            } catch (IOException e) {
+                throw new ApiError(500, new JsonObject());
+            }
+        }
+        return metadata;
+    }
+
+    private static String path(JsonObject arg) {
+        return arg.get("path").getAsString().toLowerCase(Locale.ENGLISH);
+    }
+
+    private static JsonObject error(String tag, String reason) {
+        JsonObject cause = new JsonObject();
+        cause.addProperty(".tag", tag);
+        if (reason != null) {
+            JsonObject nested = new JsonObject();
+            nested.addProperty(".tag", reason);
+            cause.add(tag, nested);
+        }
+        JsonObject error = new JsonObject();
+        error.addProperty("error_summary", tag + (reason != null ? SEPARATOR + reason : "") + SEPARATOR);
+        error.add("error", cause);
+        return error;
+    }
+
+    private static JsonObject parse(byte[] json) throws IOException {
+        if (json.length == 0) {
+            return new JsonObject();
+        }
+        JsonElement element = new JsonParser().parse(new String(json, "UTF-8"));
+        return element.isJsonObject() ? element.getAsJsonObject() : new JsonObject();
+    }
+
+    private byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] block = new byte[BLOCK];
+        long started = System.nanoTime();
+        int read;
+        while ((read = in.read(block)) != -1) {
+            body.write(block, 0, read);
+            long rate = bytesPerSecond;
+            if (rate > 0) {
+                long due = body.size() * 1000L / rate - (System.nanoTime() - started) / 1000000L;
+                if (due > 0) {
+                    sleep(due);
+                }
+            }
+        }
+        return body.toByteArray();
+    }
+
+    private static void respond(HttpExchange exchange, int code, JsonElement body) throws IOException {
+        byte[] json = body.toString().getBytes("UTF-8");
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(code, json.length);
+        OutputStream out = exchange.getResponseBody();
+        try {
+            out.write(json);
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Reply {
+        final int code;
+        final JsonElement body;
+
+        Reply(int code, JsonElement body) {
+            this.code = code;
+            this.body = body;
+        }
+    }
+
+    private static class ApiError extends Exception {
+        final int code;
+        final JsonObject body;
+
+        ApiError(int code, JsonObject body) {
+            this.code = code;
+            this.body = body;
+        }
+    }
+}
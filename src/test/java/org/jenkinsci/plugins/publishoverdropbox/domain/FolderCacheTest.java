@@ -0,0 +1,72 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import com.google.gson.Gson;
+import org.jenkinsci.plugins.publishoverdropbox.domain.model.FolderMetadata;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class FolderCacheTest {
+
+    private final Gson gson = DropboxV2.createGson();
+    private FolderCache sut;
+
+    @Before
+    public void setUp() {
+        sut = new FolderCache(2);
+    }
+
+    @Test
+    public void testLookupIgnoresCase() {
+        // Arrange
+        sut.put(folder("/builds/latest"));
+        // Act
+        FolderMetadata folder = sut.get("/Builds/Latest/");
+        // Assert
+        assertThat(folder, notNullValue());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        // Arrange
+        sut.put(folder("/a"));
+        sut.put(folder("/b"));
+        sut.get("/a");
+        // Act
+        sut.put(folder("/c"));
+        // Assert
+        assertThat(sut.size(), is(2));
+        assertThat(sut.get("/a"), notNullValue());
+        assertThat(sut.get("/b"), nullValue());
+    }
+
+    @Test
+    public void testRemoveForgetsSubfolders() {
+        // Arrange
+        sut.put(folder("/a"));
+        sut.put(folder("/a/b"));
+        // Act
+        sut.remove("/A");
+        // Assert
+        assertThat(sut.size(), is(0));
+    }
+
+    @Test
+    public void testRemoveKeepsSiblings() {
+        // Arrange
+        sut.put(folder("/a"));
+        sut.put(folder("/ab"));
+        // Act
+        sut.remove("/a");
+        // Assert
+        assertThat(sut.get("/ab"), notNullValue());
+    }
+
+    private FolderMetadata folder(String pathLower) {
+        return gson.fromJson("{\".tag\": \"folder\", \"path_lower\": \"" + pathLower + "\"}", FolderMetadata.class);
+    }
+}
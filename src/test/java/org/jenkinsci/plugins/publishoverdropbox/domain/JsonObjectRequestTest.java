@@ -0,0 +1,190 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import org.apache.commons.io.IOUtils;
+import org.jenkinsci.plugins.publishoverdropbox.domain.model.ErrorResponse;
+import org.jenkinsci.plugins.publishoverdropbox.domain.model.RestException;
+import org.jenkinsci.plugins.publishoverdropbox.domain.transport.HttpTransport;
+import org.jenkinsci.plugins.publishoverdropbox.domain.transport.TransportRequest;
+import org.jenkinsci.plugins.publishoverdropbox.domain.transport.TransportResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class JsonObjectRequestTest {
+
+    private ScriptedTransport transport;
+    private List<Long> sleeps;
+    private RetryPolicy policy;
+
+    @Before
+    public void setUp() {
+        transport = new ScriptedTransport();
+        sleeps = new ArrayList<Long>();
+        policy = new RetryPolicy(2, 10, 100) {
+            @Override
+            protected void sleep(long millis) {
+                sleeps.add(millis);
+            }
+        };
+    }
+
+    @Test
+    public void testRetriesRateLimitWithRetryAfter() throws Exception {
+        // Arrange
+        transport.respond(429, "1", "{\"error\": {\".tag\": \"too_many_requests\"}}");
+        transport.respond(200, null, "{\"error_summary\": \"none\"}");
+        // Act
+        ErrorResponse response = request("{\"path\": \"/a\"}").execute();
+        // Assert
+        assertThat(response.getErrorSummary(), is("none"));
+        assertThat(sleeps, contains(1000L));
+        assertThat(transport.bodies, contains("{\"path\": \"/a\"}", "{\"path\": \"/a\"}"));
+    }
+
+    @Test(expected = RestException.class)
+    public void testGivesUpAfterMaxRetries() throws Exception {
+        // Arrange
+        transport.respond(503, null, "");
+        transport.respond(503, null, "");
+        transport.respond(503, null, "");
+        // Act
+        request("{}").execute();
+    }
+
+    @Test
+    public void testDoesNotRetryClientErrors() throws Exception {
+        // Arrange
+        transport.respond(400, null, "bad");
+        transport.respond(200, null, "{}");
+        // Act
+        try {
+            request("{}").execute();
+        } catch (RestException e) {
+            // Expected
+        }
+        // Assert
+        assertThat(transport.bodies.size(), is(1));
+    }
+
+    @Test
+    public void testRetriesConnectionFailure() throws Exception {
+        // Arrange
+        transport.fail(new ConnectException("Connection refused"));
+        transport.respond(200, null, "{\"error_summary\": \"none\"}");
+        // Act
+        ErrorResponse response = request("{\"path\": \"/a\"}").execute();
+        // Assert
+        assertThat(response.getErrorSummary(), is("none"));
+        assertThat(sleeps.size(), is(1));
+        assertThat(transport.bodies, contains("{\"path\": \"/a\"}", "{\"path\": \"/a\"}"));
+    }
+
+    @Test
+    public void testDoesNotRetryStreamedBodyAfterConnectionFailure() throws Exception {
+        // Arrange
+        transport.fail(new ConnectException("Connection refused"));
+        transport.respond(200, null, "{}");
+        JsonObjectRequest<ErrorResponse> sut = new JsonObjectRequest.Builder<ErrorResponse>()
+                .url(new URL("https://content.dropboxapi.com/2/test"))
+                .gson(DropboxV2.createGson())
+                .method(JsonObjectRequest.Method.POST)
+                .upload(new BufferedInputStream(new ByteArrayInputStream(new byte[10])), "application/octet-stream")
+                .responseClass(ErrorResponse.class)
+                .transport(transport)
+                .retryPolicy(policy)
+                .build();
+        // Act
+        try {
+            sut.execute();
+        } catch (RestException e) {
+            // Expected
+        }
+        // Assert
+        assertThat(transport.bodies.size(), is(1));
+    }
+
+    @Test
+    public void testDoesNotRetryReadTimeout() throws Exception {
+        // Arrange
+        transport.fail(new SocketTimeoutException("Read timed out"));
+        transport.respond(200, null, "{}");
+        // Act
+        try {
+            request("{\"path\": \"/a\"}").execute();
+        } catch (RestException e) {
+            // Expected, the server may have handled the request
+        }
+        // Assert
+        assertThat(sleeps.size(), is(0));
+        assertThat(transport.bodies.size(), is(1));
+    }
+
+    private JsonObjectRequest<ErrorResponse> request(String body) throws IOException {
+        return new JsonObjectRequest.Builder<ErrorResponse>()
+                .url(new URL("https://api.dropboxapi.com/2/test"))
+                .gson(DropboxV2.createGson())
+                .method(JsonObjectRequest.Method.POST)
+                .upload(body, "application/json")
+                .responseClass(ErrorResponse.class)
+                .responseErrorClass(ErrorResponse.class)
+                .transport(transport)
+                .retryPolicy(policy)
+                .build();
+    }
+
+    private static class ScriptedTransport implements HttpTransport {
+        private final LinkedList<Object> responses = new LinkedList<Object>();
+        private final List<String> bodies = new ArrayList<String>();
+
+        void respond(final int code, final String retryAfter, final String body) {
+            responses.add(new TransportResponse() {
+                public int getCode() {
+                    return code;
+                }
+
+                public String getMessage() {
+                    return "status " + code;
+                }
+
+                public String getHeader(String name) {
+                    return "Retry-After".equalsIgnoreCase(name) ? retryAfter : null;
+                }
+
+                public InputStream getBody() throws IOException {
+                    return new ByteArrayInputStream(body.getBytes("UTF-8"));
+                }
+
+                public void close() {
+                }
+            });
+        }
+
+        void fail(IOException failure) {
+            responses.add(failure);
+        }
+
+        @Override
+        public TransportResponse execute(TransportRequest request) throws IOException {
+            bodies.add(IOUtils.toString(request.getBody(), "UTF-8"));
+            Object response = responses.removeFirst();
+            if (response instanceof IOException) {
+                throw (IOException) response;
+            }
+            return (TransportResponse) response;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import org.jenkinsci.plugins.publishoverdropbox.domain.model.DeletedMetadata;
+import org.jenkinsci.plugins.publishoverdropbox.domain.model.FileMetadata;
+import org.jenkinsci.plugins.publishoverdropbox.domain.model.FolderMetadata;
+import org.jenkinsci.plugins.publishoverdropbox.domain.model.Metadata;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ListFolderReaderTest {
+
+    private final String page = "{\n" +
+            "    \"entries\": [\n" +
+            "        {\n" +
+            "            \".tag\": \"file\",\n" +
+            "            \"name\": \"Prime_Numbers.txt\",\n" +
+            "            \"id\": \"id:a4ayc_80_OEAAAAAAAAAXw\",\n" +
+            "            \"client_modified\": \"2015-05-12T15:50:38Z\",\n" +
+            "            \"server_modified\": \"2015-05-12T15:50:38Z\",\n" +
+            "            \"rev\": \"a1c10ce0dd78\",\n" +
+            "            \"size\": 7212,\n" +
+            "            \"path_lower\": \"/homework/math/prime_numbers.txt\",\n" +
+            "            \"path_display\": \"/Homework/math/Prime_Numbers.txt\",\n" +
+            "            \"sharing_info\": {\n" +
+            "                \"read_only\": true,\n" +
+            "                \"parent_shared_folder_id\": \"84528192421\"\n" +
+            "            },\n" +
+            "            \"property_groups\": [{\"template_id\": \"ptid:1a5n2i6d3OYEAAAAAAAAAYa\", \"fields\": []}],\n" +
+            "            \"content_hash\": \"e9cbab1bb7c4a0bc77d6ae63c8fefb3aa3a5e0ed0ecf1f2c85e0e8d0e5e3f3bd\"\n" +
+            "        },\n" +
+            "        {\n" +
+            "            \"name\": \"math\",\n" +
+            "            \"path_lower\": \"/homework/math\",\n" +
+            "            \".tag\": \"folder\",\n" +
+            "            \"sharing_info\": null\n" +
+            "        },\n" +
+            "        {\n" +
+            "            \".tag\": \"deleted\",\n" +
+            "            \"name\": \"old.txt\",\n" +
+            "            \"path_lower\": \"/homework/old.txt\"\n" +
+            "        }\n" +
+            "    ],\n" +
+            "    \"cursor\": \"ZtkX9_EHj3x7PMkVuFIhwKYXEpwpLwyxp9vMKomUhllil9q7eWiAu\",\n" +
+            "    \"has_more\": true\n" +
+            "}";
+    private List<Metadata> entries;
+    private ListFolderReader sut;
+
+    @Before
+    public void setUp() {
+        entries = new ArrayList<Metadata>();
+        sut = new ListFolderReader(new MetadataCallback() {
+            @Override
+            public boolean onEntry(@Nonnull Metadata entry) {
+                entries.add(entry);
+                return true;
+            }
+        });
+    }
+
+    @Test
+    public void testStreamsFilesFoldersAndDeletions() throws Exception {
+        // Act
+        sut.read(null, new StringReader(page));
+        // Assert
+        assertThat(entries.size(), is(3));
+        FileMetadata file = (FileMetadata) entries.get(0);
+        assertThat(file.getPathLower(), equalTo("/homework/math/prime_numbers.txt"));
+        assertThat(file.getSize(), is(7212L));
+        assertThat(file.getServerModified(), equalTo("2015-05-12T15:50:38Z"));
+        assertThat(file.getContentHash(), equalTo("e9cbab1bb7c4a0bc77d6ae63c8fefb3aa3a5e0ed0ecf1f2c85e0e8d0e5e3f3bd"));
+        assertThat(entries.get(1), instanceOf(FolderMetadata.class));
+        assertThat(entries.get(1).getName(), equalTo("math"));
+        assertThat(entries.get(2), instanceOf(DeletedMetadata.class));
+        assertThat(entries.get(2).getPathLower(), equalTo("/homework/old.txt"));
+    }
+
+    @Test
+    public void testCursorWhenHasMore() throws Exception {
+        // Act
+        String cursor = sut.read(null, new StringReader(page));
+        // Assert
+        assertThat(cursor, equalTo("ZtkX9_EHj3x7PMkVuFIhwKYXEpwpLwyxp9vMKomUhllil9q7eWiAu"));
+    }
+
+    @Test
+    public void testNoCursorOnLastPage() throws Exception {
+        // Act
+        String cursor = sut.read(null, new StringReader("{\"entries\": [], \"cursor\": \"abc\", \"has_more\": false}"));
+        // Assert
+        assertThat(cursor, nullValue());
+        assertThat(sut.getLatestCursor(), equalTo("abc"));
+        assertThat(entries.size(), is(0));
+    }
+
+    @Test
+    public void testCallbackStopsListing() throws Exception {
+        // Arrange
+        sut = new ListFolderReader(new MetadataCallback() {
+            @Override
+            public boolean onEntry(@Nonnull Metadata entry) {
+                entries.add(entry);
+                return false;
+            }
+        });
+        // Act
+        String cursor = sut.read(null, new StringReader(page));
+        // Assert
+        assertThat(entries.size(), is(1));
+        assertThat(cursor, nullValue());
+        assertThat(sut.getLatestCursor(), nullValue());
+    }
+}
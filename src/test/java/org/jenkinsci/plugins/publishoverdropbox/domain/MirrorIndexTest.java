@@ -0,0 +1,56 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class MirrorIndexTest {
+
+    private MirrorIndex sut;
+
+    @Before
+    public void setUp() {
+        sut = new MirrorIndex("/Site/");
+        sut.addFolder("/site");
+        sut.addFolder("/site/css");
+        sut.addFolder("/site/old");
+        sut.addFolder("/site/old/images");
+        sut.addFile("/site/index.html", 100);
+        sut.addFile("/site/css/site.css", 20);
+        sut.addFile("/site/css/print.css", 10);
+        sut.addFile("/site/old/images/logo.png", 300);
+        sut.addFile("/other/index.html", 100);
+    }
+
+    @Test
+    public void testHasFileComparesSize() {
+        // Assert
+        assertThat(sut.hasFile("/Site/index.html", 100), is(true));
+        assertThat(sut.hasFile("/site/index.html", 101), is(false));
+        assertThat(sut.hasFile("/site/about.html", 100), is(false));
+        assertThat(sut.hasFile("/other/index.html", 100), is(false));
+    }
+
+    @Test
+    public void testDeletionsSkipKeptFiles() {
+        // Arrange
+        sut.keep("/site/index.html");
+        sut.keep("/site/css/Site.css");
+        sut.keep("/site/new/page.html");
+        // Act
+        List<String> deletions = sut.getDeletions();
+        // Assert
+        assertThat(deletions, contains("/site/css/print.css", "/site/old"));
+    }
+
+    @Test
+    public void testNothingKeptDeletesChildrenOfRoot() {
+        // Assert
+        assertThat(sut.getDeletions(), contains("/site/css", "/site/index.html", "/site/old"));
+    }
+}
@@ -0,0 +1,47 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class ParallelGzipOutputStreamTest {
+
+    @Test
+    public void testMultipleBlocksReadAsOneStream() throws Exception {
+        // Arrange
+        byte[] content = new byte[5 * ParallelGzipOutputStream.BLOCK_SIZE + 123];
+        Random random = new Random(42);
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) random.nextInt(16);
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        ParallelGzipOutputStream sut = new ParallelGzipOutputStream(compressed, 3);
+        // Act
+        sut.write(content, 0, 1000);
+        sut.write(content[1000]);
+        sut.write(content, 1001, content.length - 1001);
+        sut.close();
+        // Assert
+        byte[] uncompressed = IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray())));
+        assertThat(uncompressed, is(content));
+    }
+
+    @Test
+    public void testEmptyStream() throws Exception {
+        // Arrange
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        ParallelGzipOutputStream sut = new ParallelGzipOutputStream(compressed, 2);
+        // Act
+        sut.close();
+        // Assert
+        byte[] uncompressed = IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray())));
+        assertThat(uncompressed.length, is(0));
+    }
+}
@@ -0,0 +1,170 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import hudson.FilePath;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class PruneEngineTest {
+
+    private static final Date OLD = new Date(1000L);
+    private static final Date NEW = new Date(5000L);
+    private static final Date CUTOFF = new Date(3000L);
+    private static final Date LATER_CUTOFF = new Date(6000L);
+    private FakeDropboxServer server;
+    private DropboxV2 dropbox;
+    private File directory;
+    private PruneState state;
+
+    @Before
+    public void setUp() throws Exception {
+        AccountCache.getInstance().clear();
+        server = new FakeDropboxServer();
+        server.start();
+        dropbox = new DropboxV2(FakeDropboxServer.ACCESS_TOKEN);
+        dropbox.setServerUrls(server.getUrl(), server.getUrl());
+        dropbox.connect();
+        directory = File.createTempFile("prune", "");
+        directory.delete();
+        state = new PruneState(new FilePath(directory));
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testPrunesOldAndEmptyChildren() throws Exception {
+        // Arrange
+        server.putFile("/builds/1/deep/old.txt", new byte[1], OLD);
+        server.putFile("/builds/2/old.txt", new byte[1], OLD);
+        server.putFile("/builds/2/deep/new.txt", new byte[1], NEW);
+        dropbox.makeDirectory("/builds/3");
+        server.putFile("/builds/old.txt", new byte[1], OLD);
+        server.putFile("/builds/new.txt", new byte[1], NEW);
+        PruneEngine sut = new PruneEngine(dropbox, CUTOFF, 4, 1000, null);
+        // Act
+        List<String> deleted = sut.prune("/builds");
+        // Assert
+        Collections.sort(deleted);
+        assertThat(deleted, is(Arrays.asList("/builds/1", "/builds/3", "/builds/old.txt")));
+        assertThat(server.exists("/builds/2/deep/new.txt"), is(true));
+        assertThat(server.exists("/builds/new.txt"), is(true));
+        assertThat(server.getRequestCount("files/delete_batch"), is(1));
+    }
+
+    @Test
+    public void testStopsListingAtNewerFile() throws Exception {
+        // Arrange
+        server.setPageSize(1);
+        server.putFile("/builds/1/a.txt", new byte[1], NEW);
+        for (int i = 0; i < 10; i++) {
+            server.putFile("/builds/1/old" + i + ".txt", new byte[1], OLD);
+        }
+        PruneEngine sut = new PruneEngine(dropbox, CUTOFF, 4, 1000, null);
+        // Act
+        List<String> deleted = sut.prune("/builds");
+        // Assert
+        assertThat(deleted.size(), is(0));
+        assertThat(server.getRequestCount("files/list_folder/continue"), is(0));
+    }
+
+    @Test
+    public void testDeletesInBatchesWhileEvaluating() throws Exception {
+        // Arrange
+        for (int i = 0; i < 5; i++) {
+            server.putFile("/builds/" + i + "/old.txt", new byte[1], OLD);
+        }
+        PruneEngine sut = new PruneEngine(dropbox, CUTOFF, 2, 2, null);
+        // Act
+        List<String> deleted = sut.prune("/builds");
+        // Assert
+        assertThat(deleted.size(), is(5));
+        assertThat(server.getRequestCount("files/delete_batch"), is(3));
+        assertThat(server.exists("/builds/0"), is(false));
+        assertThat(server.exists("/builds/4"), is(false));
+    }
+
+    @Test(expected = org.jenkinsci.plugins.publishoverdropbox.domain.model.RestException.class)
+    public void testMissingFolderFails() throws Exception {
+        // Arrange
+        PruneEngine sut = new PruneEngine(dropbox, CUTOFF, 4, 1000, null);
+        // Act
+        sut.prune("/missing");
+    }
+
+    @Test
+    public void testIncrementalPruneListsOnlyChanges() throws Exception {
+        // Arrange
+        server.putFile("/builds/1/new.txt", new byte[1], NEW);
+        server.putFile("/builds/2/new.txt", new byte[1], NEW);
+        new PruneEngine(dropbox, CUTOFF, 4, 1000, state).prune("/builds");
+        int listings = server.getRequestCount("files/list_folder");
+        server.putFile("/builds/3/old.txt", new byte[1], OLD);
+        PruneEngine sut = new PruneEngine(dropbox, CUTOFF, 4, 1000, state);
+        // Act
+        List<String> deleted = sut.prune("/builds");
+        // Assert
+        assertThat(deleted, is(Arrays.asList("/builds/3")));
+        assertThat(server.getRequestCount("files/list_folder"), is(listings + 1));
+        assertThat(server.getRequestCount("files/list_folder/get_latest_cursor"), is(1));
+        assertThat(server.exists("/builds/1/new.txt"), is(true));
+    }
+
+    @Test
+    public void testIncrementalPruneEvaluatesFoldersBehindCutoff() throws Exception {
+        // Arrange
+        server.putFile("/builds/1/new.txt", new byte[1], NEW);
+        new PruneEngine(dropbox, CUTOFF, 4, 1000, state).prune("/builds");
+        PruneEngine sut = new PruneEngine(dropbox, LATER_CUTOFF, 4, 1000, state);
+        // Act
+        List<String> deleted = sut.prune("/builds");
+        // Assert
+        assertThat(deleted, is(Arrays.asList("/builds/1")));
+        assertThat(state.find("/builds").getFolders().size(), is(0));
+    }
+
+    @Test
+    public void testRemovedChildLeavesState() throws Exception {
+        // Arrange
+        server.putFile("/builds/1/new.txt", new byte[1], NEW);
+        server.putFile("/builds/2/new.txt", new byte[1], NEW);
+        new PruneEngine(dropbox, CUTOFF, 4, 1000, state).prune("/builds");
+        dropbox.deleteBatch(Arrays.asList("/builds/2"));
+        PruneEngine sut = new PruneEngine(dropbox, CUTOFF, 4, 1000, state);
+        // Act
+        sut.prune("/builds");
+        // Assert
+        assertThat(state.find("/builds").getFolders().keySet(), is(Collections.singleton("/builds/1")));
+    }
+
+    @Test
+    public void testResetCursorListsAgain() throws Exception {
+        // Arrange
+        server.putFile("/builds/1/old.txt", new byte[1], OLD);
+        state.save(new PruneState.Entry("/builds", "expired"));
+        PruneEngine sut = new PruneEngine(dropbox, CUTOFF, 4, 1000, state);
+        // Act
+        List<String> deleted = sut.prune("/builds");
+        // Assert
+        assertThat(deleted, is(Arrays.asList("/builds/1")));
+        assertThat(state.find("/builds").getCursor().equals("expired"), is(false));
+    }
+}
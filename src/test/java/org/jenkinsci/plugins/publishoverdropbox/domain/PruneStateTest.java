@@ -0,0 +1,70 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import hudson.FilePath;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class PruneStateTest {
+
+    private static final String ROOT = "/Builds";
+    private File directory;
+    private PruneState sut;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = File.createTempFile("prune", "");
+        directory.delete();
+        sut = new PruneState(new FilePath(directory));
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testRemembersChildren() {
+        // Arrange
+        PruneState.Entry entry = new PruneState.Entry(ROOT, "cursor");
+        entry.getFiles().put("/builds/old.txt", 1000L);
+        entry.getFolders().put("/builds/1", 5000L);
+        sut.save(entry);
+        // Act
+        PruneState.Entry found = sut.find("/builds");
+        // Assert
+        assertThat(found, notNullValue());
+        assertThat(found.getCursor(), equalTo("cursor"));
+        assertThat(found.getFiles().get("/builds/old.txt"), is(1000L));
+        assertThat(found.getFolders().get("/builds/1"), is(5000L));
+    }
+
+    @Test
+    public void testUnknownRoot() {
+        // Act
+        PruneState.Entry found = sut.find(ROOT);
+        // Assert
+        assertThat(found, nullValue());
+    }
+
+    @Test
+    public void testRemove() {
+        // Arrange
+        sut.save(new PruneState.Entry(ROOT, "cursor"));
+        // Act
+        sut.remove(ROOT);
+        // Assert
+        assertThat(sut.find(ROOT), nullValue());
+    }
+}
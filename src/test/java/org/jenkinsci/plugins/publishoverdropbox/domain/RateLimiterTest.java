@@ -0,0 +1,112 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private long now;
+    private long slept;
+    private RateLimiter sut;
+
+    @Before
+    public void setUp() {
+        now = SECOND;
+        slept = 0;
+        sut = new RateLimiter() {
+            @Override
+            protected long nanoTime() {
+                return now;
+            }
+
+            @Override
+            protected void sleepNanos(long nanos) {
+                slept += nanos;
+                now += nanos;
+            }
+        };
+    }
+
+    @Test
+    public void testUnlimitedNeverWaits() throws Exception {
+        // Act
+        for (int i = 0; i < 100; i++) {
+            sut.acquire(1024);
+        }
+        // Assert
+        assertThat(slept, is(0L));
+    }
+
+    @Test
+    public void testRequestRate() throws Exception {
+        // Arrange
+        sut.setRates("host", 10, 0);
+        // Act
+        for (int i = 0; i < 21; i++) {
+            sut.acquire(0);
+        }
+        // Assert
+        assertThat(slept, is(2 * SECOND));
+    }
+
+    @Test
+    public void testLargeUploadIsPaidBackByNextRequest() throws Exception {
+        // Arrange
+        sut.setRates("host", 0, 1000);
+        // Act
+        sut.acquire(3000);
+        long first = slept;
+        sut.acquire(10);
+        // Assert
+        assertThat(first, is(0L));
+        assertThat(slept, is(3 * SECOND));
+    }
+
+    @Test
+    public void testStrictestRateOfConfigurationsApplies() throws Exception {
+        // Arrange
+        sut.setRates("strict", 10, 0);
+        sut.setRates("lenient", 100, 0);
+        // Act
+        for (int i = 0; i < 21; i++) {
+            sut.acquire(0);
+        }
+        // Assert
+        assertThat(slept, is(2 * SECOND));
+    }
+
+    @Test
+    public void testUnlimitedConfigurationKeepsLimit() throws Exception {
+        // Arrange
+        sut.setRates("limited", 0, 1000);
+        sut.setRates("unlimited", 0, 0);
+        // Act
+        sut.acquire(3000);
+        sut.acquire(10);
+        // Assert
+        assertThat(slept, is(3 * SECOND));
+    }
+
+    @Test
+    public void testPauseHoldsBackRequests() throws Exception {
+        // Arrange
+        sut.pause(1500);
+        // Act
+        sut.acquire(0);
+        // Assert
+        assertThat(slept, is(TimeUnit.MILLISECONDS.toNanos(1500)));
+    }
+
+    @Test
+    public void testSharedPerToken() {
+        // Assert
+        assertThat(RateLimiter.forToken("a") == RateLimiter.forToken("a"), is(true));
+        assertThat(RateLimiter.forToken("a") == RateLimiter.forToken("b"), is(false));
+    }
+}
@@ -0,0 +1,25 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class RemotePathsTest {
+
+    @Test
+    public void testNormalize() {
+        // Assert
+        assertThat(RemotePaths.normalize("/Builds/Latest/"), is("/builds/latest"));
+        assertThat(RemotePaths.normalize("/"), is(""));
+    }
+
+    @Test
+    public void testIsWithin() {
+        // Assert
+        assertThat(RemotePaths.isWithin("/builds/latest/file.txt", "/builds"), is(true));
+        assertThat(RemotePaths.isWithin("/builds", "/builds"), is(true));
+        assertThat(RemotePaths.isWithin("/builds-2/file.txt", "/builds"), is(false));
+        assertThat(RemotePaths.isWithin("/file.txt", ""), is(true));
+    }
+}
@@ -0,0 +1,93 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class RequestMetricsTest {
+
+    private RequestMetrics sut;
+    private List<String> events;
+    private RequestMetrics.Listener listener;
+
+    @Before
+    public void setUp() {
+        sut = RequestMetrics.getInstance();
+        sut.reset();
+        events = new ArrayList<String>();
+        listener = new RequestMetrics.Listener() {
+            @Override
+            public void onRequest(String endpoint, long nanos, long bytes, int code) {
+                events.add(endpoint + " " + code);
+            }
+
+            @Override
+            public void onRetry(String endpoint, int code) {
+                events.add("retry " + endpoint + " " + code);
+            }
+
+            @Override
+            public void onChunk(long bytes, long nanos) {
+                events.add("chunk " + bytes);
+            }
+        };
+        sut.addListener(listener);
+    }
+
+    @After
+    public void tearDown() {
+        sut.removeListener(listener);
+    }
+
+    @Test
+    public void testEndpointOfUrl() throws Exception {
+        // Act
+        String endpoint = RequestMetrics.endpoint(new URL("https://content.dropboxapi.com/2/files/upload_session/append_v2"));
+        // Assert
+        assertThat(endpoint, is("files/upload_session/append_v2"));
+    }
+
+    @Test
+    public void testCountsRequestsAndLatencies() {
+        // Act
+        sut.request("files/upload", TimeUnit.MILLISECONDS.toNanos(5), 100, 200);
+        sut.request("files/upload", TimeUnit.MILLISECONDS.toNanos(700), 300, 429);
+        sut.retry("files/upload", 429);
+        // Assert
+        RequestStatistics statistics = sut.getStatistics().get("files/upload");
+        assertThat(statistics.getRequests(), is(2L));
+        assertThat(statistics.getErrors(), is(1L));
+        assertThat(statistics.getRetries(), is(1L));
+        assertThat(statistics.getRateLimited(), is(1L));
+        assertThat(statistics.getBytes(), is(400L));
+        assertThat(statistics.getLatencies()[0], is(1L));
+        assertThat(statistics.getLatencies()[5], is(1L));
+    }
+
+    @Test
+    public void testChunkThroughput() {
+        // Act
+        sut.chunk(4000, TimeUnit.SECONDS.toNanos(2));
+        // Assert
+        assertThat(sut.getChunkThroughput(), is(2000L));
+    }
+
+    @Test
+    public void testListenersReceiveMeasurements() {
+        // Act
+        sut.request("files/delete_v2", 1, 0, 200);
+        sut.retry("files/delete_v2", 503);
+        sut.chunk(10, 1);
+        // Assert
+        assertThat(events, contains("files/delete_v2 200", "retry files/delete_v2 503", "chunk 10"));
+    }
+}
@@ -0,0 +1,80 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import com.google.gson.Gson;
+import org.jenkinsci.plugins.publishoverdropbox.domain.model.ErrorResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class RetryPolicyTest {
+
+    private RetryPolicy sut;
+    private Gson gson;
+
+    @Before
+    public void setUp() {
+        sut = new RetryPolicy(3, 100, 1000);
+        gson = DropboxV2.createGson();
+    }
+
+    @Test
+    public void testRateLimitAndServerErrorsAreRetryable() {
+        // Assert
+        assertThat(sut.isRetryable(429, null), is(true));
+        assertThat(sut.isRetryable(503, null), is(true));
+        assertThat(sut.isRetryable(400, null), is(false));
+        assertThat(sut.isRetryable(401, null), is(false));
+    }
+
+    @Test
+    public void testNestedWriteConflictIsRetryable() {
+        // Arrange
+        ErrorResponse error = gson.fromJson("{\"error_summary\": \"path/too_many_write_operations/\", \"error\": {\".tag\": \"path\", \"reason\": {\".tag\": \"too_many_write_operations\"}}}", ErrorResponse.class);
+        ErrorResponse notFound = gson.fromJson("{\"error\": {\".tag\": \"path\", \"reason\": {\".tag\": \"not_found\"}}}", ErrorResponse.class);
+        // Assert
+        assertThat(sut.isRetryable(409, error), is(true));
+        assertThat(sut.isRetryable(409, notFound), is(false));
+    }
+
+    @Test
+    public void testRetryAfterHeaderWins() {
+        // Act
+        long delay = sut.nextDelay(0, "2", null);
+        // Assert
+        assertThat(delay, is(2000L));
+    }
+
+    @Test
+    public void testRetryAfterFieldOfError() {
+        // Arrange
+        ErrorResponse error = gson.fromJson("{\"error\": {\"reason\": {\".tag\": \"too_many_requests\"}, \"retry_after\": 3}}", ErrorResponse.class);
+        // Act
+        long delay = sut.nextDelay(0, null, error);
+        // Assert
+        assertThat(delay, is(3000L));
+    }
+
+    @Test
+    public void testTooLongRetryAfterGivesUp() {
+        // Act
+        long delay = sut.nextDelay(0, "3600", null);
+        // Assert
+        assertThat(delay, is(-1L));
+    }
+
+    @Test
+    public void testJitterStaysWithinBounds() {
+        // Arrange
+        long delay = 0;
+        for (int i = 0; i < 100; i++) {
+            // Act
+            long next = sut.nextDelay(delay, null, null);
+            // Assert
+            assertThat(next, greaterThanOrEqualTo(100L));
+            assertThat(next, lessThanOrEqualTo(Math.min(1000L, Math.max(100L, delay * 3))));
+            delay = next;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import hudson.FilePath;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class TokenExchangeTest {
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private FilePath indexFile;
+    private boolean failing;
+
+    @Before
+    public void setUp() throws Exception {
+        File file = File.createTempFile("tokens", ".json");
+        file.delete();
+        file.deleteOnExit();
+        indexFile = new FilePath(file);
+    }
+
+    @Test
+    public void testExchangeDoesNotWait() throws Exception {
+        // Arrange
+        TokenExchange sut = createExchange();
+        // Act
+        Future<String> pending = sut.exchange("authorization");
+        boolean doneBeforeRelease = pending.isDone();
+        release.countDown();
+        // Assert
+        assertThat(doneBeforeRelease, is(false));
+        assertThat(sut.getAccessCode("authorization"), is("access-authorization"));
+    }
+
+    @Test
+    public void testExchangedOnlyOnce() throws Exception {
+        // Arrange
+        TokenExchange sut = createExchange();
+        release.countDown();
+        // Act
+        sut.exchange("authorization");
+        sut.exchange("authorization");
+        sut.getAccessCode("authorization");
+        // Assert
+        assertThat(requests.get(), is(1));
+    }
+
+    @Test
+    public void testIndexedCodeIsNotExchanged() throws Exception {
+        // Arrange
+        TokenExchange sut = createExchange();
+        // Act
+        sut.index("authorization", "known");
+        // Assert
+        assertThat(sut.getAccessCode("authorization"), is("known"));
+        assertThat(requests.get(), is(0));
+    }
+
+    @Test
+    public void testFailedExchangeIsRetried() throws Exception {
+        // Arrange
+        TokenExchange sut = createExchange();
+        release.countDown();
+        failing = true;
+        try {
+            sut.getAccessCode("authorization");
+        } catch (IOException expected) {
+            // Dropbox is not reachable
+        }
+        failing = false;
+        // Act
+        String accessCode = sut.getAccessCode("authorization");
+        // Assert
+        assertThat(accessCode, is("access-authorization"));
+        assertThat(requests.get(), is(2));
+    }
+
+    @Test
+    public void testExchangedCodeSurvivesRestart() throws Exception {
+        // Arrange
+        release.countDown();
+        createExchange().getAccessCode("authorization");
+        // Act
+        String accessCode = createExchange().getAccessCode("authorization");
+        // Assert
+        assertThat(accessCode, is("access-authorization"));
+        assertThat(requests.get(), is(1));
+    }
+
+    private TokenExchange createExchange() {
+        return new TokenExchange() {
+            @Override
+            protected String requestAccessCode(String authorizationCode) throws IOException {
+                requests.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                if (failing) {
+                    throw new IOException("Dropbox is not reachable");
+                }
+                return "access-" + authorizationCode;
+            }
+
+            @Override
+            protected FilePath getIndexFile() {
+                return indexFile;
+            }
+        };
+    }
+}
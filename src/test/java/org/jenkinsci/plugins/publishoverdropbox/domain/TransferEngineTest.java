@@ -0,0 +1,78 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class TransferEngineTest {
+
+    private TransferEngine sut;
+
+    @Before
+    public void setUp() {
+        sut = new TransferEngine(3);
+    }
+
+    @After
+    public void tearDown() {
+        sut.shutdown();
+    }
+
+    @Test
+    public void testAwaitRunsAllTransfers() throws IOException {
+        // Arrange
+        final AtomicInteger count = new AtomicInteger();
+        // Act
+        for (int i = 0; i < 20; i++) {
+            sut.submit("file" + i, new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    count.incrementAndGet();
+                    return null;
+                }
+            });
+        }
+        sut.await();
+        // Assert
+        assertThat(count.get(), is(20));
+    }
+
+    @Test
+    public void testReportsFirstSubmittedFailure() throws IOException {
+        // Arrange
+        final CountDownLatch secondFailed = new CountDownLatch(1);
+        sut.submit("first", new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                // Fail after the second transfer failed
+                secondFailed.await(5, TimeUnit.SECONDS);
+                throw new IOException("first");
+            }
+        });
+        sut.submit("second", new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                secondFailed.countDown();
+                throw new IOException("second");
+            }
+        });
+        // Act
+        String message = null;
+        try {
+            sut.await();
+        } catch (IOException e) {
+            message = e.getMessage();
+        }
+        // Assert
+        assertThat(message, is("first"));
+    }
+}
@@ -0,0 +1,87 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain;
+
+import hudson.FilePath;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class UploadJournalTest {
+
+    private static final String DESTINATION = "/Builds/Big.iso";
+    private static final String SOURCE = UploadJournal.identify("/workspace/big.iso", 3000L, 1234L);
+    private File directory;
+    private UploadJournal sut;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = File.createTempFile("journal", "");
+        directory.delete();
+        sut = new UploadJournal(new FilePath(directory));
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testContinuesSameSource() {
+        // Arrange
+        UploadJournal.Entry entry = new UploadJournal.Entry(DESTINATION, SOURCE, "session", false, 4096L);
+        entry.setOffset(2048L);
+        sut.save(entry);
+        // Act
+        UploadJournal.Entry found = sut.find("/builds/big.iso", SOURCE);
+        // Assert
+        assertThat(found, notNullValue());
+        assertThat(found.getSessionId(), equalTo("session"));
+        assertThat(found.getOffset(), is(2048L));
+    }
+
+    @Test
+    public void testChangedSourceStartsOver() {
+        // Arrange
+        sut.save(new UploadJournal.Entry(DESTINATION, SOURCE, "session", false, 4096L));
+        String changed = UploadJournal.identify("/workspace/big.iso", 3000L, 5678L);
+        // Act
+        UploadJournal.Entry found = sut.find(DESTINATION, changed);
+        // Assert
+        assertThat(found, nullValue());
+        assertThat(sut.find(DESTINATION, SOURCE), nullValue());
+    }
+
+    @Test
+    public void testRememberAppendedChunks() {
+        // Arrange
+        UploadJournal.Entry entry = new UploadJournal.Entry(DESTINATION, SOURCE, "session", true, 1024L);
+        entry.addAppended(2048L);
+        sut.save(entry);
+        // Act
+        UploadJournal.Entry found = sut.find(DESTINATION, SOURCE);
+        // Assert
+        assertThat(found.isConcurrent(), is(true));
+        assertThat(found.isAppended(2048L), is(true));
+        assertThat(found.isAppended(0L), is(false));
+    }
+
+    @Test
+    public void testRemove() {
+        // Arrange
+        sut.save(new UploadJournal.Entry(DESTINATION, SOURCE, "session", false, 4096L));
+        // Act
+        sut.remove(DESTINATION);
+        // Assert
+        assertThat(sut.find(DESTINATION, SOURCE), nullValue());
+    }
+}
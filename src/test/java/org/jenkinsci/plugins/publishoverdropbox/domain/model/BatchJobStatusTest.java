@@ -0,0 +1,75 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain.model;
+
+import com.google.gson.Gson;
+import org.jenkinsci.plugins.publishoverdropbox.domain.DropboxV2;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.Reader;
+import java.io.StringReader;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+public class BatchJobStatusTest {
+
+    private final String asyncJob = "{\n" +
+            "    \".tag\": \"async_job_id\",\n" +
+            "    \"async_job_id\": \"34g93hh34h04y384084\"\n" +
+            "}";
+    private final String complete = "{\n" +
+            "    \".tag\": \"complete\",\n" +
+            "    \"entries\": [\n" +
+            "        {\n" +
+            "            \".tag\": \"success\",\n" +
+            "            \"name\": \"Prime_Numbers.txt\",\n" +
+            "            \"id\": \"id:a4ayc_80_OEAAAAAAAAAXw\",\n" +
+            "            \"client_modified\": \"2015-05-12T15:50:38Z\",\n" +
+            "            \"server_modified\": \"2015-05-12T15:50:38Z\",\n" +
+            "            \"rev\": \"a1c10ce0dd78\",\n" +
+            "            \"size\": 7212,\n" +
+            "            \"path_lower\": \"/homework/math/prime_numbers.txt\",\n" +
+            "            \"path_display\": \"/Homework/math/Prime_Numbers.txt\"\n" +
+            "        },\n" +
+            "        {\n" +
+            "            \".tag\": \"failure\",\n" +
+            "            \"failure\": {\n" +
+            "                \".tag\": \"too_many_write_operations\"\n" +
+            "            }\n" +
+            "        }\n" +
+            "    ]\n" +
+            "}";
+    private Gson gson;
+
+    @Before
+    public void setUp() {
+        gson = DropboxV2.createGson();
+    }
+
+    @Test
+    public void testAsyncJobJson() {
+        // Arrange
+        Reader reader = new StringReader(asyncJob);
+        // Act
+        BatchJobStatus model = gson.fromJson(reader, BatchJobStatus.class);
+        // Assert
+        assertThat(model.isAsyncJob(), equalTo(true));
+        assertThat(model.isComplete(), equalTo(false));
+        assertThat(model.getAsyncJobId(), equalTo("34g93hh34h04y384084"));
+        assertThat(model.getEntries().size(), equalTo(0));
+    }
+
+    @Test
+    public void testCompleteJson() {
+        // Arrange
+        Reader reader = new StringReader(complete);
+        // Act
+        BatchJobStatus model = gson.fromJson(reader, BatchJobStatus.class);
+        // Assert
+        assertThat(model.isComplete(), equalTo(true));
+        assertThat(model.getEntries().size(), equalTo(2));
+        assertThat(model.getEntries().get(0).isSuccess(), equalTo(true));
+        assertThat(model.getEntries().get(1).isSuccess(), equalTo(false));
+        assertThat(model.getEntries().get(1).getFailure().getTag(), equalTo("too_many_write_operations"));
+    }
+}
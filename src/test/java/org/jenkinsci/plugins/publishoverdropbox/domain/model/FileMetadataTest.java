@@ -39,7 +39,8 @@ public class FileMetadataTest {
             "            ]\n" +
             "        }\n" +
             "    ],\n" +
-            "    \"has_explicit_shared_members\": false\n" +
+            "    \"has_explicit_shared_members\": false,\n" +
+            "    \"content_hash\": \"e9cbab1bb7c4a0bc77d6ae63c8fefb3aa3a5e0ed0ecf1f2c85e0e8d0e5e3f3bd\"\n" +
             "}";
     private Gson gson;
 
@@ -58,5 +59,6 @@ public class FileMetadataTest {
         assertThat(model.getServerModified(), equalTo("2015-05-12T15:50:38Z"));
         assertThat(model.getName(), equalTo("Prime_Numbers.txt"));
         assertThat(model.getPathLower(), equalTo("/homework/math/prime_numbers.txt"));
+        assertThat(model.getContentHash(), equalTo("e9cbab1bb7c4a0bc77d6ae63c8fefb3aa3a5e0ed0ecf1f2c85e0e8d0e5e3f3bd"));
     }
 }
\ No newline at end of file
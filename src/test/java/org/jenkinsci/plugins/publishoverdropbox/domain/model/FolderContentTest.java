@@ -91,4 +91,15 @@ public class FolderContentTest {
         assertThat(model.getEntries().get(0), instanceOf(FileMetadata.class));
         assertThat(model.getEntries().get(1), instanceOf(FolderMetadata.class));
     }
+
+    @Test
+    public void testPagingJson() {
+        // Arrange
+        Reader reader = new StringReader("{\"entries\": [], \"cursor\": \"ZtkX9_EHj3x7PMkVuFIhwKYXEpwpLwyxp9vMKomUhllil9q7eWiAu\", \"has_more\": true}");
+        // Act
+        FolderContent model = gson.fromJson(reader, FolderContent.class);
+        // Assert
+        assertThat(model.hasMore(), is(true));
+        assertThat(model.getCursor(), is("ZtkX9_EHj3x7PMkVuFIhwKYXEpwpLwyxp9vMKomUhllil9q7eWiAu"));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain.transport;
+
+import org.apache.commons.io.IOUtils;
+import org.jenkinsci.plugins.publishoverdropbox.domain.FakeDropboxServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URL;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class ConnectionPoolsTest {
+
+    private static final String ENDPOINT = "users/get_current_account";
+
+    private FakeDropboxServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new FakeDropboxServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void testSameSettingsShareThePool() {
+        // Act
+        PooledTransport first = ConnectionPools.forConfiguration("shared", 4, 60);
+        PooledTransport second = ConnectionPools.forConfiguration("shared", 4, 60);
+        // Assert
+        assertThat(second, is(sameInstance(first)));
+    }
+
+    @Test
+    public void testReplacedPoolIsShutDownAfterOpenResponses() throws Exception {
+        // Arrange
+        PooledTransport replaced = ConnectionPools.forConfiguration("replaced", 4, 60);
+        TransportResponse open = replaced.execute(request());
+        // Act
+        PooledTransport pool = ConnectionPools.forConfiguration("replaced", 8, 60);
+        read(replaced.execute(request()));
+        int leasedWhileOpen = replaced.getStatistics().getLeased();
+        read(open);
+        // Assert
+        assertThat(pool, is(not(sameInstance(replaced))));
+        assertThat(leasedWhileOpen, is(1));
+        assertThat(replaced.getStatistics().getRequests(), is(1L));
+        assertThat(replaced.getStatistics().getAvailable(), is(0));
+        assertThat(pool.getStatistics().getRequests(), is(1L));
+        assertThat(server.getRequestCount(ENDPOINT), is(2));
+    }
+
+    private TransportRequest request() throws IOException {
+        TransportRequest request = new TransportRequest(new URL(server.getUrl() + "/2/" + ENDPOINT), "POST");
+        request.addHeader("Authorization", "Bearer " + FakeDropboxServer.ACCESS_TOKEN);
+        request.setTimeout(30000);
+        return request;
+    }
+
+    private static void read(TransportResponse response) throws IOException {
+        try {
+            IOUtils.toByteArray(response.getBody());
+        } finally {
+            response.close();
+        }
+    }
+}
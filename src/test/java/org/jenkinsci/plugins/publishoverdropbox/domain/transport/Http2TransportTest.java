@@ -0,0 +1,89 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain.transport;
+
+import org.jenkinsci.plugins.publishoverdropbox.domain.DropboxV2;
+import org.jenkinsci.plugins.publishoverdropbox.domain.FakeDropboxServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.net.URL;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Runs uploads through the {@link Http2Transport} against the {@link FakeDropboxServer} serving HTTP/2 over
+ * cleartext.
+ */
+public class Http2TransportTest {
+
+    private FakeDropboxServer server;
+    private DropboxV2 sut;
+
+    @Before
+    public void setUp() throws Exception {
+        assumeTrue(Http2Transport.isSupported());
+        server = new FakeDropboxServer();
+        server.startHttp2();
+        Http2Transport transport = new Http2Transport();
+        upgrade(transport);
+        sut = new DropboxV2(FakeDropboxServer.ACCESS_TOKEN, transport);
+        sut.setServerUrls(server.getUrl(), server.getUrl());
+        sut.connect();
+        sut.makeDirectory("/builds");
+        sut.changeWorkingDirectory("/builds");
+    }
+
+    @After
+    public void tearDown() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testStoreConcurrentChunks() throws Exception {
+        // Arrange
+        sut.setChunkWorkers(3);
+        byte[] content = new byte[3 * 4 * 1024 * 1024 + 1000];
+        new Random(42).nextBytes(content);
+        // Act
+        sut.storeFile("concurrent.bin", new ByteArrayInputStream(content), content.length);
+        // Assert
+        assertThat(server.getContent("/builds/concurrent.bin"), is(content));
+        assertThat(server.getRequestCount("files/upload_session/append_v2"), is(4));
+        assertThat(server.getProtocols(), hasItem("HTTP/2.0"));
+    }
+
+    @Test
+    public void testStoreSmallFile() throws Exception {
+        // Arrange
+        byte[] content = "Hello world".getBytes("UTF-8");
+        // Act
+        sut.storeFile("small.txt", new ByteArrayInputStream(content), content.length);
+        // Assert
+        assertThat(server.getContent("/builds/small.txt"), is(content));
+        assertThat(server.getProtocols(), hasItem("HTTP/2.0"));
+    }
+
+    @Test
+    public void testStoreEmptyFile() throws Exception {
+        // Act
+        sut.storeFile("empty.txt", new ByteArrayInputStream(new byte[0]), 0);
+        // Assert
+        assertThat(server.getContent("/builds/empty.txt"), is(new byte[0]));
+    }
+
+    /**
+     * The client upgrades a cleartext connection on its first request, which the server only accepts without a body.
+     */
+    private void upgrade(Http2Transport transport) throws Exception {
+        TransportRequest request = new TransportRequest(new URL(server.getUrl() + "/2/users/get_current_account"), "POST");
+        request.addHeader("Authorization", "Bearer " + FakeDropboxServer.ACCESS_TOKEN);
+        transport.execute(request).close();
+    }
+}
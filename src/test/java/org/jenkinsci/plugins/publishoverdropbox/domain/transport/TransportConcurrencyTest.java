@@ -0,0 +1,104 @@
+package org.jenkinsci.plugins.publishoverdropbox.domain.transport;
+
+import org.apache.commons.io.IOUtils;
+import org.jenkinsci.plugins.publishoverdropbox.domain.FakeDropboxServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Sends many concurrent requests through each transport to the in-process {@link FakeDropboxServer}.
+ */
+public class TransportConcurrencyTest {
+
+    private static final int REQUESTS = 200;
+    private static final int CONCURRENCY = 16;
+    private static final String ENDPOINT = "users/get_current_account";
+
+    private FakeDropboxServer server;
+    private URL url;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new FakeDropboxServer();
+        server.start();
+        url = new URL(server.getUrl() + "/2/" + ENDPOINT);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void testPooledTransport() throws Exception {
+        // Arrange
+        PooledTransport transport = new PooledTransport(CONCURRENCY, 60);
+        try {
+            // Act
+            int succeeded = run(transport);
+            // Assert
+            assertThat(succeeded, is(REQUESTS));
+            assertThat(server.getRequestCount(ENDPOINT), is(REQUESTS));
+        } finally {
+            transport.shutdown();
+        }
+    }
+
+    @Test
+    public void testHttp2Transport() throws Exception {
+        assumeTrue(Http2Transport.isSupported());
+        // Arrange
+        Http2Transport transport = new Http2Transport();
+        // Act
+        int succeeded = run(transport);
+        // Assert
+        assertThat(succeeded, is(REQUESTS));
+        assertThat(server.getRequestCount(ENDPOINT), is(REQUESTS));
+    }
+
+    private int run(final HttpTransport transport) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENCY);
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>(REQUESTS);
+            for (int i = 0; i < REQUESTS; i++) {
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        TransportRequest request = new TransportRequest(url, "POST");
+                        request.addHeader("Authorization", "Bearer " + FakeDropboxServer.ACCESS_TOKEN);
+                        request.setTimeout(30000);
+                        TransportResponse response = transport.execute(request);
+                        try {
+                            IOUtils.toByteArray(response.getBody());
+                            return response.getCode() == 200;
+                        } finally {
+                            response.close();
+                        }
+                    }
+                }));
+            }
+            int succeeded = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get()) {
+                    succeeded++;
+                }
+            }
+            return succeeded;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}